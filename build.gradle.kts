@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("com.github.johnrengelman.shadow") version "8.1.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.agorohov.java-project-dumper"
@@ -10,17 +11,40 @@ repositories {
     mavenCentral()
 }
 
+// ProjectDumpTask in src/gradleTask, kept apart so that the main jar does not depend on the Gradle API
+val gradleTask by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
 dependencies {
     implementation("org.eclipse.jgit:org.eclipse.jgit:7.5.0.202512021534-r")
     implementation("ch.qos.logback:logback-classic:1.5.27")
+    "gradleTaskCompileOnly"(gradleApi())
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Microbenchmarks in src/jmh: ./gradlew jmh, results in build/results/jmh/results.json
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
+
+// Synthetic project tree for manual runs: ./gradlew generateBenchmarkFixture -Pdir=/tmp/fixture
+tasks.register<JavaExec>("generateBenchmarkFixture") {
+    group = "benchmark"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.agorohov.java_project_dumper.FixtureGenerator")
+    args(project.findProperty("dir") ?: layout.buildDirectory.dir("benchmark-fixture").get().asFile.path)
+}
+
 tasks.shadowJar {
     archiveBaseName.set("java-project-dumper")
     archiveFileName.set("java-project-dumper.jar")
@@ -30,6 +54,59 @@ tasks.shadowJar {
     manifest {
         attributes["Main-Class"] = "com.agorohov.java_project_dumper.Main"
     }
+
+    // Signatures of the merged jars are not valid for the fat jar, and classes of signed jars are never archived by CDS
+    exclude("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA", "META-INF/*.EC")
+}
+
+// AppCDS archive of the classes loaded by a training run (a dump of this project's sources).
+// It is valid only for the JDK that built it and the jar at its build location, the launchers fall back
+// to a normal start otherwise.
+val cdsArchive = tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    dependsOn(tasks.shadowJar)
+
+    val jar = tasks.shadowJar.flatMap { it.archiveFile }
+    val archive = layout.buildDirectory.file("libs/java-project-dumper.jsa")
+    val trainingOutput = layout.buildDirectory.file("cds-training/projectdump.txt")
+    inputs.file(jar)
+    inputs.dir("src/main")
+    outputs.file(archive)
+
+    executable = File(System.getProperty("java.home"), "bin/java").path
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            "-XX:ArchiveClassesAtExit=" + archive.get().asFile.path,
+            "-jar", jar.get().asFile.path,
+            "--path=" + file("src").path,
+            "--output=" + trainingOutput.get().asFile.path,
+            "--threads=2"
+        )
+    })
+    doFirst {
+        archive.get().asFile.delete()
+        trainingOutput.get().asFile.parentFile.mkdirs()
+    }
+}
+
+// Launchers next to the jar, they start it with the AppCDS archive when it fits
+val launchers = tasks.register<Copy>("launchers") {
+    group = "build"
+    from("scripts") {
+        include("project-dumper", "project-dumper.cmd")
+    }
+    into(layout.buildDirectory.dir("libs"))
+}
+
+// Jar for the buildscript classpath of other builds: the task and the library classes without
+// dependencies, logging goes to the slf4j binding of Gradle
+val gradleTaskJar = tasks.register<Jar>("gradleTaskJar") {
+    group = "build"
+    archiveFileName.set("java-project-dumper-gradle.jar")
+    from(sourceSets.main.get().output) {
+        exclude("logback.xml")
+    }
+    from(gradleTask.output)
 }
 
 //tasks.jar {
@@ -37,5 +114,5 @@ tasks.shadowJar {
 //}
 
 tasks.build {
-    dependsOn(tasks.shadowJar)
+    dependsOn(tasks.shadowJar, cdsArchive, launchers, gradleTaskJar)
 }
\ No newline at end of file
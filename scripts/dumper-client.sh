@@ -0,0 +1,22 @@
+#!/bin/sh
+# Thin client of the dump server: forwards the arguments to a server started with
+#   java -jar java-project-dumper.jar --serve [--port=<n>]
+# and prints its report, so no JVM is started per dump. With --output=- it prints the dump itself.
+# Relative paths are resolved against the current directory. The port is taken from
+# PROJECT_DUMPER_PORT (default: 7071), the token printed by the server from PROJECT_DUMPER_TOKEN.
+
+PORT="${PROJECT_DUMPER_PORT:-7071}"
+
+if [ -z "$PROJECT_DUMPER_TOKEN" ]; then
+    echo "PROJECT_DUMPER_TOKEN is not set, copy it from the output of --serve" >&2
+    exit 2
+fi
+
+# The token is passed as a header file on fd 3, so it does not show up in the process list
+printf '%s\n' "$@" | curl --silent --show-error --fail-with-body \
+    --header @/dev/fd/3 \
+    --header "X-Dumper-Cwd: $PWD" \
+    --data-binary @- \
+    "http://127.0.0.1:$PORT/dump" 3<<EOF
+Authorization: Bearer $PROJECT_DUMPER_TOKEN
+EOF
@@ -0,0 +1,15 @@
+@echo off
+rem Starts java-project-dumper.jar from the same directory. The AppCDS archive made by gradlew build
+rem is used when it is there; a JVM that cannot use it starts normally.
+
+setlocal
+set "DIR=%~dp0"
+set "JAVA=java"
+if defined JAVA_HOME set "JAVA=%JAVA_HOME%\bin\java"
+
+if exist "%DIR%java-project-dumper.jsa" (
+    "%JAVA%" -XX:SharedArchiveFile="%DIR%java-project-dumper.jsa" -Xshare:auto -Xlog:cds=off -Xlog:cds+dynamic=off -jar "%DIR%java-project-dumper.jar" %*
+) else (
+    "%JAVA%" -jar "%DIR%java-project-dumper.jar" %*
+)
+exit /b %ERRORLEVEL%
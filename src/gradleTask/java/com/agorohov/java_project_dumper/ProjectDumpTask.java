@@ -0,0 +1,118 @@
+package com.agorohov.java_project_dumper;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Gradle task on top of ProjectDumper: writes the blocks of the text format in-process, without a JVM
+// for the jar. There is no header with a timestamp and no stats footer, the same sources give the same file.
+//
+//     tasks.register<ProjectDumpTask>("projectDump") {
+//         root.set(layout.projectDirectory)
+//         output.set(layout.buildDirectory.file("projectdump.txt"))
+//     }
+@UntrackedTask(because = "The dumped files are chosen by the ignore rules of the project at run time")
+public abstract class ProjectDumpTask extends DefaultTask {
+
+    @Internal
+    public abstract DirectoryProperty getRoot();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutput();
+
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxFileSizeBytes();
+
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxFileLines();
+
+    @Input
+    @Optional
+    public abstract Property<Integer> getThreads();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getUseGitignore();
+
+    // Globs as in --include
+    @Input
+    public abstract ListProperty<String> getIncludes();
+
+    // Lines in the .gitignore syntax, applied after the ignore files of the project
+    @Input
+    public abstract ListProperty<String> getIgnoreRules();
+
+    public ProjectDumpTask() {
+        setGroup("documentation");
+        setDescription("Dumps the project sources into one text file");
+    }
+
+    @TaskAction
+    public void dump() throws IOException {
+        ProjectDumper.Builder builder = ProjectDumper.builder(getRoot().get().getAsFile().toPath())
+                .include(getIncludes().get())
+                .ignoreRules(getIgnoreRules().get());
+        if (getMaxFileSizeBytes().isPresent()) {
+            builder.maxFileSizeBytes(getMaxFileSizeBytes().get());
+        }
+        if (getMaxFileLines().isPresent()) {
+            builder.maxFileLines(getMaxFileLines().get());
+        }
+        if (getThreads().isPresent()) {
+            builder.threads(getThreads().get());
+        }
+        if (getUseGitignore().isPresent()) {
+            builder.useGitignore(getUseGitignore().get());
+        }
+
+        Path output = getOutput().get().getAsFile().toPath();
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        DumpStats stats;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), Constants.WRITE_BUFFER_SIZE)) {
+            // The content buffers are read-only, their arrays are not accessible
+            WritableByteChannel channel = Channels.newChannel(out);
+            stats = builder.build().dump(new DumpSink() {
+                @Override
+                public void accept(String path, BlockKind kind, ByteBuffer content) throws IOException {
+                    write(out, TextFormatter.blockStart(path));
+                    while (content.hasRemaining()) {
+                        channel.write(content);
+                    }
+                    write(out, TextFormatter.BLOCK_END);
+                }
+
+                @Override
+                public void duplicate(String path, String originalPath) throws IOException {
+                    write(out, TextFormatter.blockStart(path) + TextFormatter.sameAs(originalPath)
+                            + TextFormatter.BLOCK_END);
+                }
+            });
+        }
+        getLogger().info("Project dump written to {}", output);
+        getLogger().info(stats.toString());
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
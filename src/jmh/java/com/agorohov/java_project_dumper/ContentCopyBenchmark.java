@@ -0,0 +1,87 @@
+package com.agorohov.java_project_dumper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+// Line counting and copying of one file into the dump. The output is discarded,
+// so the numbers cover reading and scanning, not the disk write.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ContentCopyBenchmark {
+
+    @Param({"4096", "262144", "4194304"})
+    public int fileSize;
+
+    @Param({"40", "120", "100000"})
+    public int lineLength;
+
+    private Path file;
+    private ByteBuffer buffer;
+    private DumpWriter writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("dumper-copy-", ".java");
+        Files.write(file, FixtureGenerator.content("java", fileSize, lineLength));
+        buffer = ByteBuffer.allocate(Constants.READ_BUFFER_SIZE);
+        writer = new DumpWriter(new DiscardChannel(), Constants.WRITE_BUFFER_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long copyWithDefaultLimits() throws IOException {
+        return copy(Constants.MAX_FILE_SIZE_BYTES_DEFAULT, Constants.MAX_FILE_LINES_DEFAULT);
+    }
+
+    @Benchmark
+    public long copyWhole() throws IOException {
+        return copy(Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private long copy(long maxBytes, int maxLines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ContentCopier.readFirstChunk(channel, buffer);
+            return ContentCopier.copyHead(channel, buffer, maxBytes, maxLines, writer).end();
+        }
+    }
+
+    private static final class DiscardChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.agorohov.java_project_dumper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Whole dump of a generated tree of about 2000 files, the page cache is warm after the first iteration
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DumpBenchmark {
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path workDir;
+    private Config config;
+    private IgnoreMatcher ignoreMatcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("dumper-bench-");
+        Path root = workDir.resolve("project");
+        FixtureGenerator.generateTree(root, 50, 40);
+
+        config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(workDir.resolve(Constants.DEFAULT_OUTPUT_FILENAME));
+        config.setThreads(threads);
+        ignoreMatcher = IgnoreLoader.loadIgnoreMatcher(root, true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FixtureGenerator.deleteTree(workDir);
+    }
+
+    @Benchmark
+    public DumpStats dump() throws IOException {
+        return FileDumper.dump(config, ignoreMatcher);
+    }
+}
@@ -0,0 +1,158 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic content, ignore rules and project trees for the benchmarks, generated with fixed seeds
+// so every run measures the same data without network or checked-in fixtures
+public final class FixtureGenerator {
+
+    private static final long SEED = 20240601L;
+
+    private static final String[] WORDS = {
+            "final", "return", "private", "static", "int", "long", "String", "buffer", "channel", "config",
+            "stats", "entry", "path", "writer", "result", "offset", "length", "count", "value", "index"
+    };
+    private static final String[] CYRILLIC_WORDS = {"файл", "строка", "буфер", "путь", "запись", "размер"};
+    private static final String[] DIRS = {
+            "src", "main", "java", "com", "example", "service", "model", "util", "test", "resources",
+            "build", "target", "node_modules", "docs", "config", "generated", "cache", "web", "api", "core"
+    };
+    private static final String[] EXTENSIONS = {
+            ".java", ".java", ".java", ".kt", ".xml", ".properties", ".md", ".json", ".js", ".ts",
+            ".class", ".jar", ".png", ".log", ".yml", ".gradle", ".txt", ".html", ".css", ".sql"
+    };
+
+    private FixtureGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : "benchmark-fixture");
+        generateTree(root, 50, 40);
+        System.out.println("Fixture generated: " + root.toAbsolutePath());
+    }
+
+    // Content of the given type: java, utf8, latin1, minified or binary, exactly size bytes
+    public static byte[] content(String type, int size, int lineLength) {
+        Random random = new Random(SEED);
+        byte[] content = switch (type) {
+            case "java" -> text(random, size, lineLength, WORDS).getBytes(StandardCharsets.UTF_8);
+            case "utf8" -> text(random, size, lineLength, CYRILLIC_WORDS).getBytes(StandardCharsets.UTF_8);
+            case "latin1" -> text(random, size, lineLength, WORDS).replace('e', 'é')
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            case "minified" -> text(random, size, Integer.MAX_VALUE, WORDS).getBytes(StandardCharsets.UTF_8);
+            case "binary" -> {
+                byte[] bytes = new byte[size];
+                random.nextBytes(bytes);
+                yield bytes;
+            }
+            default -> throw new IllegalArgumentException("Unknown content type: " + type);
+        };
+        return Arrays.copyOf(content, size);
+    }
+
+    // Mix of rules seen in real .gitignore files: names, suffixes, anchored paths, prefixes, globs, negations
+    public static List<String> ignoreRules(int count) {
+        Random random = new Random(SEED);
+        List<String> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String dir = DIRS[random.nextInt(DIRS.length)];
+            // The first rules are the common ones, the rest are numbered project specific rules
+            String suffix = i < 24 ? "" : String.valueOf(i);
+            String rule = switch (i % 6) {
+                case 0 -> dir + suffix + "/";
+                case 1 -> "*" + EXTENSIONS[random.nextInt(EXTENSIONS.length)] + suffix;
+                case 2 -> "/" + dir + "/" + DIRS[random.nextInt(DIRS.length)] + suffix + "/";
+                case 3 -> dir + suffix + "*";
+                case 4 -> "**/" + dir + "/*" + suffix + ".log";
+                default -> "!" + dir + suffix + ".keep";
+            };
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    // Relative unix paths of a typical project, 1 to 8 directories deep
+    public static List<String> paths(int count) {
+        Random random = new Random(SEED);
+        List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder path = new StringBuilder();
+            int depth = 1 + random.nextInt(8);
+            for (int d = 0; d < depth; d++) {
+                path.append(DIRS[random.nextInt(DIRS.length)]).append('/');
+            }
+            path.append("File").append(i).append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    // Project tree of source files with some binaries, long files and a .gitignore
+    public static void generateTree(Path root, int dirs, int filesPerDir) throws IOException {
+        Random random = new Random(SEED);
+        Files.createDirectories(root);
+        Files.writeString(root.resolve(Constants.GITIGNORE_FILENAME), "*.log\nbuild/\n");
+
+        for (int d = 0; d < dirs; d++) {
+            Path dir = root.resolve("src/main/java/" + DIRS[d % DIRS.length] + "/pkg" + d);
+            Files.createDirectories(dir);
+            for (int f = 0; f < filesPerDir; f++) {
+                int kind = random.nextInt(20);
+                if (kind == 0) {
+                    Files.write(dir.resolve("Asset" + f + ".png"), content("binary", 4096 + random.nextInt(65536), 0));
+                } else if (kind == 1) {
+                    Files.write(dir.resolve("Large" + f + ".java"), content("java", 262144 + random.nextInt(262144), 80));
+                } else if (kind == 2) {
+                    Files.write(dir.resolve("debug" + f + ".log"), content("java", 8192, 120));
+                } else {
+                    Files.write(dir.resolve("Source" + f + ".java"), content("java", 512 + random.nextInt(16384), 80));
+                }
+            }
+        }
+    }
+
+    public static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String text(Random random, int size, int lineLength, String[] words) {
+        StringBuilder text = new StringBuilder(size + 64);
+        int lineStart = 0;
+        while (text.length() < size) {
+            text.append(words[random.nextInt(words.length)]);
+            if (text.length() - lineStart >= lineLength) {
+                text.append('\n');
+                lineStart = text.length();
+            } else {
+                text.append(' ');
+            }
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+}
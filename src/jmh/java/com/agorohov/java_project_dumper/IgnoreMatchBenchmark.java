@@ -0,0 +1,70 @@
+package com.agorohov.java_project_dumper;
+
+import org.eclipse.jgit.ignore.FastIgnoreRule;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Ignore checks of one path, against the compiled rules and against the plain JGit IgnoreNode
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class IgnoreMatchBenchmark {
+
+    private static final int PATHS = 1000;
+
+    @Param({"10", "100", "1000"})
+    public int ruleCount;
+
+    private List<String> paths;
+    private IgnoreMatcher matcher;
+    private IgnoreNode ignoreNode;
+
+    @Setup
+    public void setUp() {
+        List<String> rules = FixtureGenerator.ignoreRules(ruleCount);
+        paths = FixtureGenerator.paths(PATHS);
+        matcher = IgnoreMatcher.root(IgnoreRules.compile(rules), IgnoreRules.empty(), false);
+
+        List<FastIgnoreRule> fastRules = new ArrayList<>(rules.size());
+        for (String rule : rules) {
+            fastRules.add(new FastIgnoreRule(rule));
+        }
+        ignoreNode = new IgnoreNode(fastRules);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public int ignoreMatcher() {
+        int ignored = 0;
+        for (String path : paths) {
+            if (matcher.isIgnored(path, false)) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public int jgitIgnoreNode() {
+        int ignored = 0;
+        for (String path : paths) {
+            if (Boolean.TRUE.equals(ignoreNode.checkIgnored(path, false))) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+}
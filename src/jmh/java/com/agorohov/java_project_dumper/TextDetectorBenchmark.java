@@ -0,0 +1,118 @@
+package com.agorohov.java_project_dumper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Binary sniffing of the first chunk, as done for every dumped file: the one-pass SWAR classifier with UTF-8
+// validation against the byte-by-byte control byte count it replaced, alone and with a byte-by-byte UTF-8 check
+// that gives the same answer as detect
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TextDetectorBenchmark {
+
+    @Param({"java", "utf8", "latin1", "minified", "binary"})
+    public String fileType;
+
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        buffer = ByteBuffer.allocate(Constants.READ_BUFFER_SIZE);
+        buffer.put(FixtureGenerator.content(fileType, Constants.READ_BUFFER_SIZE, 80));
+        buffer.flip();
+    }
+
+    @Benchmark
+    public DetectedCharset detect() {
+        return TextDetector.detect(buffer);
+    }
+
+    @Benchmark
+    public DetectedCharset detectText() {
+        return TextDetector.detectText(buffer);
+    }
+
+    @Benchmark
+    public boolean scalarLoop() {
+        int sampleSize = Math.min(buffer.remaining(), Constants.SAMPLE_SIZE);
+        byte[] sample = buffer.array();
+        int nonTextCount = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            int b = sample[i] & 0xFF;
+            if (b < 9 || (b > 13 && b < 32) || b == 127) {
+                nonTextCount++;
+            }
+        }
+        return (double) nonTextCount / sampleSize <= Constants.BAD_BYTES_LIMIT;
+    }
+
+    // The loop above with the UTF-8 rules of detect checked on every byte. A sequence cut by the end
+    // of the sample is checked on the following bytes, as detect does. There are no BOMs in the fixtures.
+    @Benchmark
+    public DetectedCharset byteByByte() {
+        int sampleSize = Math.min(buffer.remaining(), Constants.SAMPLE_SIZE);
+        byte[] sample = buffer.array();
+        int end = buffer.remaining();
+        int nonTextCount = 0;
+        boolean valid = true;
+        int needed = 0;
+        int lower = 0x80;
+        int upper = 0xBF;
+        for (int i = 0; i < sampleSize || (valid && needed > 0 && i < end); i++) {
+            int b = sample[i] & 0xFF;
+            if (i < sampleSize && (b < 9 || (b > 13 && b < 32) || b == 127)) {
+                nonTextCount++;
+            }
+            if (!valid) {
+                continue;
+            }
+            if (needed > 0) {
+                if (b < lower || b > upper) {
+                    valid = false;
+                }
+                needed--;
+                lower = 0x80;
+                upper = 0xBF;
+            } else if (b >= 0x80) {
+                if (b >= 0xC2 && b <= 0xDF) {
+                    needed = 1;
+                } else if (b == 0xE0) {
+                    needed = 2;
+                    lower = 0xA0;
+                } else if (b == 0xED) {
+                    needed = 2;
+                    upper = 0x9F;
+                } else if (b >= 0xE1 && b <= 0xEF) {
+                    needed = 2;
+                } else if (b == 0xF0) {
+                    needed = 3;
+                    lower = 0x90;
+                } else if (b >= 0xF1 && b <= 0xF3) {
+                    needed = 3;
+                } else if (b == 0xF4) {
+                    needed = 3;
+                    upper = 0x8F;
+                } else {
+                    valid = false;
+                }
+            }
+        }
+        if (sampleSize == 0) {
+            return DetectedCharset.UTF_8;
+        }
+        if ((double) nonTextCount / sampleSize > Constants.BAD_BYTES_LIMIT) {
+            return DetectedCharset.BINARY;
+        }
+        return valid && needed == 0 ? DetectedCharset.UTF_8 : DetectedCharset.LATIN_1;
+    }
+}
@@ -0,0 +1,339 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Files of a zip, jar or tar archive, read without extracting the archive to disk.
+// A zip file is mounted as a file system and walked like a directory, its own .gitignore and
+// .projectdumperignore files apply. A tar file is read in one pass, in the order of the archive:
+// every file that is not ignored is read into memory up to the size limit while the stream is at it
+// (with --sample to the end, keeping the tail, see HeadTailChannel).
+// Ignore files inside a tar are not read (they may come after the files they cover), default rules apply.
+public final class ArchiveSource implements FileSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveSource.class);
+
+    private static final int TAR_BLOCK = 512;
+
+    private final Config config;
+    private final ArchiveType type;
+    private final FileSystem zipFileSystem;     // null for a tar
+    private final Map<String, Boolean> ignoredDirs = new HashMap<>();
+
+    private ArchiveSource(Config config, ArchiveType type, FileSystem zipFileSystem) {
+        this.config = config;
+        this.type = type;
+        this.zipFileSystem = zipFileSystem;
+    }
+
+    public static ArchiveSource open(Config config) throws IOException {
+        Path archive = config.getRootPath();
+        ArchiveType type = ArchiveType.of(archive);
+        FileSystem zipFileSystem = type.isZip() ? FileSystems.newFileSystem(archive) : null;
+        return new ArchiveSource(config, type, zipFileSystem);
+    }
+
+    @Override
+    public void walk(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        if (zipFileSystem != null) {
+            // The given matcher was loaded for the archive file and has the default rules only
+            Path root = zipFileSystem.getPath("/");
+            IgnoreMatcher zipMatcher = IgnoreLoader.loadIgnoreMatcher(root, config.isGitignoreApplied());
+            new FileTreeSource(config, root).walk(zipMatcher, stats, consumer);
+        } else {
+            walkTar(ignoreMatcher, stats, consumer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zipFileSystem != null) {
+            zipFileSystem.close();
+        }
+    }
+
+    private void walkTar(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        Path archive = config.getRootPath();
+        log.debug("Reading {} archive {}", type.getValue(), archive);
+
+        try (InputStream file = Files.newInputStream(archive);
+             InputStream in = new BufferedInputStream(type.isGzipped()
+                     ? new GZIPInputStream(file, Constants.READ_BUFFER_SIZE)
+                     : file, Constants.READ_BUFFER_SIZE)) {
+            TarReader reader = new TarReader(in, archive);
+            for (TarEntry entry = reader.next(); entry != null; entry = reader.next()) {
+                String path = entry.path();
+                // Directories are implied by the paths of their files, links have no content
+                if (!entry.isFile() || path.isEmpty() || isInIgnoredDirectory(path, ignoreMatcher, stats)) {
+                    continue;
+                }
+
+                stats.incTotalFiles();
+                if (isIgnored(path, false, ignoreMatcher, stats)) {
+                    stats.incIgnoredTextFiles();
+                    log.debug("Ignoring file by rule: {}", path);
+                    continue;
+                }
+
+                // The entry may be dumped on another thread after the stream has moved on
+                FileEntry.Opener content = HeadTailChannel.read(reader.content(), config);
+                consumer.accept(new FileEntry(path, entry.size(), entry.lastModified(), content));
+            }
+        }
+    }
+
+    // A tar has no directory listing, so every parent directory is checked once and remembered
+    private boolean isInIgnoredDirectory(String path, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            String dir = path.substring(0, slash);
+            Boolean ignored = ignoredDirs.get(dir);
+            if (ignored == null) {
+                ignored = isIgnored(dir, true, ignoreMatcher, stats);
+                if (ignored) {
+                    stats.incSkippedDirs();
+                    log.debug("Skipping directory by ignore rule: {}", dir);
+                }
+                ignoredDirs.put(dir, ignored);
+            }
+            if (ignored) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIgnored(String path, boolean directory, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        long start = System.nanoTime();
+        boolean ignored = ignoreMatcher.isIgnored(path, directory);
+        stats.getMetrics().addNanos(DumpPhase.IGNORE, System.nanoTime() - start);
+        return ignored;
+    }
+
+    private record TarEntry(String path, byte type, long size, long lastModified) {
+
+        // Regular and contiguous files, old archives mark directories with a slash only
+        boolean isFile() {
+            return (type == '0' || type == 0 || type == '7') && !path.endsWith("/");
+        }
+    }
+
+    // Reader of ustar, GNU (long names) and pax (long names and sizes) tar streams
+    private static final class TarReader {
+
+        private final InputStream in;
+        private final Path archive;
+        private final byte[] header = new byte[TAR_BLOCK];
+        private long unread = 0;        // content of the current entry not read yet
+        private long padding = 0;       // zeros up to the next block
+
+        private TarReader(InputStream in, Path archive) {
+            this.in = in;
+            this.archive = archive;
+        }
+
+        // Next entry, null at the end of the archive
+        TarEntry next() throws IOException {
+            String longPath = null;
+            Map<String, String> pax = Map.of();
+            while (true) {
+                skipRest();
+                int length = in.readNBytes(header, 0, TAR_BLOCK);
+                if (length == 0 || isZeroBlock()) {
+                    return null;
+                }
+                if (length < TAR_BLOCK || !isChecksumValid()) {
+                    throw new IOException("Not a tar archive or damaged: " + archive);
+                }
+
+                byte type = header[156];
+                long size = number(124, 12);
+                start(size);
+                if (type == 'L') {
+                    // GNU long name of the next entry
+                    longPath = cString(read(size), 0, (int) size);
+                    continue;
+                }
+                if (type == 'x') {
+                    pax = parsePax(read(size));
+                    continue;
+                }
+                if (type == 'g' || type == 'K') {
+                    continue;
+                }
+
+                String path = longPath;
+                if (pax.containsKey("path")) {
+                    path = pax.get("path");
+                }
+                if (path == null) {
+                    path = headerPath();
+                }
+                if (pax.containsKey("size")) {
+                    size = Long.parseLong(pax.get("size"));
+                    start(size);
+                }
+                long lastModified = pax.containsKey("mtime")
+                        ? (long) (Double.parseDouble(pax.get("mtime")) * 1000)
+                        : number(136, 12) * 1000;
+                return new TarEntry(normalize(path), type, size, lastModified);
+            }
+        }
+
+        // Content of the current entry as a stream, the part not read is skipped by the next call of next()
+        InputStream content() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (unread == 0) {
+                        return -1;
+                    }
+                    int length = in.read(b, off, (int) Math.min(len, unread));
+                    if (length < 0) {
+                        throw new IOException("Unexpected end of tar archive: " + archive);
+                    }
+                    unread -= length;
+                    return length;
+                }
+            };
+        }
+
+        // Content of the current entry up to maxBytes, the rest is skipped by the next call of next()
+        byte[] read(long maxBytes) throws IOException {
+            int length = (int) Math.min(Math.min(unread, maxBytes), Integer.MAX_VALUE - 8);
+            byte[] content = in.readNBytes(length);
+            if (content.length < length) {
+                throw new IOException("Unexpected end of tar archive: " + archive);
+            }
+            unread -= length;
+            return content;
+        }
+
+        private void start(long size) {
+            unread = size;
+            padding = (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK;
+        }
+
+        private void skipRest() throws IOException {
+            in.skipNBytes(unread + padding);
+            unread = 0;
+            padding = 0;
+        }
+
+        private boolean isZeroBlock() {
+            for (byte b : header) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Sum of the header bytes, the checksum field itself counted as spaces
+        private boolean isChecksumValid() {
+            long sum = 0;
+            for (int i = 0; i < TAR_BLOCK; i++) {
+                sum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+            }
+            return sum == number(148, 8);
+        }
+
+        // Name with the ustar prefix; GNU tar keeps other fields at the place of the prefix
+        private String headerPath() {
+            String name = cString(header, 0, 100);
+            boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't'
+                    && header[260] == 'a' && header[261] == 'r' && header[262] == 0;
+            if (ustar && header[345] != 0) {
+                return cString(header, 345, 155) + "/" + name;
+            }
+            return name;
+        }
+
+        // Octal digits padded with spaces or NULs, or a big-endian binary number if the high bit is set
+        private long number(int offset, int length) {
+            if ((header[offset] & 0x80) != 0) {
+                long value = header[offset] & 0x7f;
+                for (int i = 1; i < length; i++) {
+                    value = (value << 8) | (header[offset + i] & 0xff);
+                }
+                return value;
+            }
+            long value = 0;
+            int i = offset;
+            int end = offset + length;
+            while (i < end && header[i] == ' ') {
+                i++;
+            }
+            for (; i < end && header[i] >= '0' && header[i] <= '7'; i++) {
+                value = value * 8 + (header[i] - '0');
+            }
+            return value;
+        }
+
+        // Records "<length> <key>=<value>\n", the length counts the whole record
+        private Map<String, String> parsePax(byte[] data) {
+            Map<String, String> values = new HashMap<>();
+            int pos = 0;
+            while (pos < data.length) {
+                int space = pos;
+                while (space < data.length && data[space] != ' ') {
+                    space++;
+                }
+                int length;
+                try {
+                    length = Integer.parseInt(new String(data, pos, space - pos, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                int end = pos + length;
+                if (length <= 0 || end > data.length) {
+                    break;
+                }
+                String record = new String(data, space + 1, end - space - 2, StandardCharsets.UTF_8);
+                int equals = record.indexOf('=');
+                if (equals > 0) {
+                    values.put(record.substring(0, equals), record.substring(equals + 1));
+                }
+                pos = end;
+            }
+            return values;
+        }
+
+        private static String cString(byte[] bytes, int offset, int length) {
+            int end = offset;
+            while (end < offset + length && bytes[end] != 0) {
+                end++;
+            }
+            return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        // "./src/Main.java" and "/src/Main.java" become "src/Main.java"
+        private static String normalize(String path) {
+            String result = path;
+            while (result.startsWith("./") || result.startsWith("/")) {
+                result = result.substring(result.startsWith("/") ? 1 : 2);
+            }
+            if (result.equals(".")) {
+                return "";
+            }
+            return result;
+        }
+    }
+}
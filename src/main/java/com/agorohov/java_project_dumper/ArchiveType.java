@@ -0,0 +1,47 @@
+package com.agorohov.java_project_dumper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Archives that can be dumped without extracting, recognized by the file name suffix
+public enum ArchiveType {
+    ZIP(".zip"),
+    JAR(".jar"),
+    TAR(".tar"),
+    TAR_GZ(".tar.gz"),
+    TGZ(".tgz");
+
+    private final String value;
+
+    ArchiveType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isZip() {
+        return this == ZIP || this == JAR;
+    }
+
+    public boolean isGzipped() {
+        return this == TAR_GZ || this == TGZ;
+    }
+
+    // Type of an archive file, null for a directory or any other file
+    public static ArchiveType of(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+        String name = fileName.toString().toLowerCase(Locale.ROOT);
+        for (ArchiveType type : values()) {
+            if (name.endsWith(type.getValue())) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
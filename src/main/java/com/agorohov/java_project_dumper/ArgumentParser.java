@@ -1,15 +1,50 @@
 package com.agorohov.java_project_dumper;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
 
+import static com.agorohov.java_project_dumper.Options.BINARY_EXT;
+import static com.agorohov.java_project_dumper.Options.CHANGED_SINCE;
+import static com.agorohov.java_project_dumper.Options.COMPACT;
+import static com.agorohov.java_project_dumper.Options.COMPRESS;
 import static com.agorohov.java_project_dumper.Options.DEBUG;
+import static com.agorohov.java_project_dumper.Options.DIFF;
+import static com.agorohov.java_project_dumper.Options.EXTRACT;
+import static com.agorohov.java_project_dumper.Options.FORMAT;
+import static com.agorohov.java_project_dumper.Options.GIT_REF;
 import static com.agorohov.java_project_dumper.Options.HELP;
+import static com.agorohov.java_project_dumper.Options.INCLUDE;
+import static com.agorohov.java_project_dumper.Options.INCREMENTAL;
+import static com.agorohov.java_project_dumper.Options.INDEX;
 import static com.agorohov.java_project_dumper.Options.MAX_FILE_LINES;
 import static com.agorohov.java_project_dumper.Options.MAX_FILE_SIZE;
+import static com.agorohov.java_project_dumper.Options.JFR;
+import static com.agorohov.java_project_dumper.Options.METRICS;
+import static com.agorohov.java_project_dumper.Options.NO_DEDUP;
 import static com.agorohov.java_project_dumper.Options.NO_GITIGNORE;
+import static com.agorohov.java_project_dumper.Options.OUTLINE;
 import static com.agorohov.java_project_dumper.Options.OUTPUT;
 import static com.agorohov.java_project_dumper.Options.PATH;
+import static com.agorohov.java_project_dumper.Options.PATHS_FROM;
+import static com.agorohov.java_project_dumper.Options.PORT;
+import static com.agorohov.java_project_dumper.Options.SAMPLE;
+import static com.agorohov.java_project_dumper.Options.SERVE;
 import static com.agorohov.java_project_dumper.Options.SHOW_DEFAULT_IGNORE;
+import static com.agorohov.java_project_dumper.Options.SOURCE;
+import static com.agorohov.java_project_dumper.Options.SPLIT;
+import static com.agorohov.java_project_dumper.Options.TEXT_EXT;
+import static com.agorohov.java_project_dumper.Options.THREADS;
+import static com.agorohov.java_project_dumper.Options.WATCH;
 
 public final class ArgumentParser {
 
@@ -17,6 +52,11 @@ public final class ArgumentParser {
 
     public static Config parse(String[] args) {
         Config config = new Config();
+        List<Path> roots = new ArrayList<>();
+        Set<String> textExtensions = new HashSet<>();
+        Set<String> binaryExtensions = new HashSet<>();
+        List<String> includeGlobs = new ArrayList<>();
+        boolean outputFileNameOnly = true;
 
         for (String arg : args) {
             if (arg.equals(HELP.getValue())) {
@@ -26,15 +66,80 @@ public final class ArgumentParser {
                 config.setRunMode(RunMode.SHOW_DEFAULT_IGNORE);
                 return config;
             } else if (arg.startsWith(PATH.getValue())) {
-                config.setRootPath(Paths.get(arg.substring(PATH.getValue().length())));
+                roots.add(Paths.get(arg.substring(PATH.getValue().length())));
+            } else if (arg.startsWith(PATHS_FROM.getValue())) {
+                roots.addAll(parsePathsFile(arg.substring(PATHS_FROM.getValue().length())));
             } else if (arg.startsWith(OUTPUT.getValue())) {
                 config.setOutputPath(Paths.get(arg.substring(OUTPUT.getValue().length())));
+                outputFileNameOnly = config.getOutputPath().getParent() == null;
             } else if (arg.startsWith(MAX_FILE_SIZE.getValue())) {
                 config.setMaxFileSizeBytes(parseSize(arg.substring(MAX_FILE_SIZE.getValue().length())));
             } else if (arg.startsWith(MAX_FILE_LINES.getValue())) {
                 config.setMaxFileLines(parseLines(arg.substring(MAX_FILE_LINES.getValue().length())));
+            } else if (arg.startsWith(THREADS.getValue())) {
+                config.setThreads(parseThreads(arg.substring(THREADS.getValue().length())));
+            } else if (arg.startsWith(SAMPLE.getValue())) {
+                parseSample(arg.substring(SAMPLE.getValue().length()), config);
+            } else if (arg.equals(INCREMENTAL.getValue())) {
+                config.setIncremental(true);
+            } else if (arg.equals(WATCH.getValue())) {
+                config.setRunMode(RunMode.WATCH);
+            } else if (arg.equals(SERVE.getValue())) {
+                config.setRunMode(RunMode.SERVE);
+            } else if (arg.startsWith(PORT.getValue())) {
+                config.setServePort(parsePort(arg.substring(PORT.getValue().length())));
+            } else if (arg.startsWith(COMPRESS.getValue())) {
+                config.setCompression(parseCompression(arg.substring(COMPRESS.getValue().length())));
+            } else if (arg.startsWith(COMPACT.getValue())) {
+                config.setCompactions(parseCompactions(arg.substring(COMPACT.getValue().length())));
+            } else if (arg.equals(OUTLINE.getValue())) {
+                config.setOutline(true);
+            } else if (arg.startsWith(FORMAT.getValue())) {
+                config.setFormat(parseFormat(arg.substring(FORMAT.getValue().length())));
+            } else if (arg.startsWith(SPLIT.getValue())) {
+                long splitSize = parseSize(arg.substring(SPLIT.getValue().length()));
+                if (splitSize <= 0) {
+                    throw new IllegalArgumentException("split size must be > 0");
+                }
+                config.setSplitSizeBytes(splitSize);
+            } else if (arg.equals(INDEX.getValue())) {
+                config.setIndexed(true);
+            } else if (arg.startsWith(EXTRACT.getValue())) {
+                String glob = arg.substring(EXTRACT.getValue().length());
+                if (glob.isEmpty()) {
+                    throw new IllegalArgumentException("extract glob must not be empty");
+                }
+                config.setRunMode(RunMode.EXTRACT);
+                config.setExtractGlob(glob);
+            } else if (arg.startsWith(SOURCE.getValue())) {
+                config.setSourceType(parseSource(arg.substring(SOURCE.getValue().length())));
+            } else if (arg.startsWith(GIT_REF.getValue())) {
+                config.setSourceType(SourceType.GIT_REF);
+                config.setGitRef(arg.substring(GIT_REF.getValue().length()));
+            } else if (arg.startsWith(CHANGED_SINCE.getValue())) {
+                String rev = arg.substring(CHANGED_SINCE.getValue().length());
+                if (rev.isEmpty()) {
+                    throw new IllegalArgumentException("--changed-since revision must not be empty");
+                }
+                config.setSourceType(SourceType.GIT_CHANGED);
+                config.setGitBaseRef(rev);
+                config.setGitRef(null);
+            } else if (arg.startsWith(DIFF.getValue())) {
+                parseDiff(arg.substring(DIFF.getValue().length()), config);
+            } else if (arg.startsWith(METRICS.getValue())) {
+                config.setMetricsPath(Paths.get(arg.substring(METRICS.getValue().length())));
+            } else if (arg.startsWith(JFR.getValue())) {
+                config.setJfrPath(Paths.get(arg.substring(JFR.getValue().length())));
             } else if (arg.equals(NO_GITIGNORE.getValue())) {
                 config.setUseGitignore(false);
+            } else if (arg.equals(NO_DEDUP.getValue())) {
+                config.setDeduplicated(false);
+            } else if (arg.startsWith(TEXT_EXT.getValue())) {
+                textExtensions.addAll(parseExtensions(arg.substring(TEXT_EXT.getValue().length())));
+            } else if (arg.startsWith(BINARY_EXT.getValue())) {
+                binaryExtensions.addAll(parseExtensions(arg.substring(BINARY_EXT.getValue().length())));
+            } else if (arg.startsWith(INCLUDE.getValue())) {
+                includeGlobs.add(parseGlob(arg.substring(INCLUDE.getValue().length())));
             } else if (arg.equals(DEBUG.getValue())) {
                 config.setDebug(true);
             } else {
@@ -42,13 +147,84 @@ public final class ArgumentParser {
             }
         }
 
+        config.setTextExtensions(Set.copyOf(textExtensions));
+        config.setBinaryExtensions(Set.copyOf(binaryExtensions));
+        config.setIncludeGlobs(List.copyOf(includeGlobs));
+
+        if (!roots.isEmpty()) {
+            config.setRootPath(roots.get(0));
+        }
+        if (roots.size() > 1) {
+            config.setBatchRootPaths(List.copyOf(roots));
+            if (config.getRunMode() == RunMode.DUMP) {
+                config.setRunMode(RunMode.BATCH);
+            }
+            if (!outputFileNameOnly) {
+                throw new IllegalArgumentException("--output must be a file name when several roots are dumped");
+            }
+        }
+
         if (config.getOutputPath() == null) {
-            config.setOutputPath(config.getRootPath().resolve(Constants.DEFAULT_OUTPUT_FILENAME));
+            String fileName = config.getCompression() == Compression.GZIP
+                    ? Constants.DEFAULT_OUTPUT_FILENAME + Constants.GZIP_SUFFIX
+                    : Constants.DEFAULT_OUTPUT_FILENAME;
+            config.setOutputPath(Config.outputPathIn(config.getRootPath(), fileName));
+        } else if (config.getOutputPath().toString().endsWith(Constants.GZIP_SUFFIX)) {
+            config.setCompression(Compression.GZIP);
         }
 
         return config;
     }
 
+    // One root per line, empty lines and lines starting with # are skipped
+    private static List<Path> parsePathsFile(String fileString) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(fileString), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read paths file: " + fileString);
+        }
+        List<Path> paths = new ArrayList<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                paths.add(Paths.get(trimmed));
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("No paths in paths file: " + fileString);
+        }
+        return paths;
+    }
+
+    // Comma separated, case insensitive, a leading dot is allowed: java,.KT
+    public static List<String> parseExtensions(String extensionsString) {
+        List<String> extensions = new ArrayList<>();
+        for (String part : extensionsString.split(",")) {
+            String extension = part.trim().toLowerCase(Locale.ROOT);
+            if (extension.startsWith(".")) {
+                extension = extension.substring(1);
+            }
+            if (extension.isEmpty()) {
+                throw new IllegalArgumentException("Invalid extension list: " + extensionsString);
+            }
+            extensions.add(extension);
+        }
+        return extensions;
+    }
+
+    public static String parseGlob(String globString) {
+        if (globString.isEmpty()) {
+            throw new IllegalArgumentException("include glob must not be empty");
+        }
+        try {
+            FileSystems.getDefault().getPathMatcher("glob:" + globString);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid include glob: " + globString);
+        }
+        return globString;
+    }
+
     private static long parseSize(String sizeString) {
         sizeString = sizeString.toUpperCase().trim();
         long size;
@@ -75,4 +251,106 @@ public final class ArgumentParser {
         }
         return lines;
     }
+
+    private static int parseThreads(String threadsString) {
+        int threads;
+        try {
+            threads = Integer.parseInt(threadsString);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid threads format");
+        }
+        return threads;
+    }
+
+    private static int parsePort(String portString) {
+        int port;
+        try {
+            port = Integer.parseInt(portString);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port format");
+        }
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("port must be between 1 and 65535");
+        }
+        return port;
+    }
+
+    // head:<n>,tail:<m>, any part can be omitted
+    private static void parseSample(String sampleString, Config config) {
+        for (String part : sampleString.split(",")) {
+            String[] keyValue = part.trim().split(":");
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Invalid sample format: " + sampleString);
+            }
+            int lines;
+            try {
+                lines = Integer.parseInt(keyValue[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid sample format: " + sampleString);
+            }
+            switch (keyValue[0].trim().toLowerCase()) {
+                case "head" -> config.setSampleHeadLines(lines);
+                case "tail" -> config.setSampleTailLines(lines);
+                default -> throw new IllegalArgumentException("Invalid sample format: " + sampleString);
+            }
+        }
+    }
+
+    // <revA>..<revB>, the files of revB that differ from revA
+    private static void parseDiff(String diffString, Config config) {
+        int dots = diffString.indexOf("..");
+        if (dots <= 0 || dots + 2 >= diffString.length() || diffString.charAt(dots + 2) == '.') {
+            throw new IllegalArgumentException("Invalid diff range: " + diffString + ", expected <revA>..<revB>");
+        }
+        config.setSourceType(SourceType.GIT_DIFF);
+        config.setGitBaseRef(diffString.substring(0, dots));
+        config.setGitRef(diffString.substring(dots + 2));
+    }
+
+    private static SourceType parseSource(String sourceString) {
+        if (sourceString.equals(SourceType.FILESYSTEM.getValue())) {
+            return SourceType.FILESYSTEM;
+        } else if (sourceString.equals(SourceType.GIT_INDEX.getValue())) {
+            return SourceType.GIT_INDEX;
+        }
+        throw new IllegalArgumentException("Invalid source: " + sourceString);
+    }
+
+    private static Compression parseCompression(String compressionString) {
+        if (compressionString.equals(Compression.GZIP.getValue())) {
+            return Compression.GZIP;
+        } else if (compressionString.equals(Compression.NONE.getValue())) {
+            return Compression.NONE;
+        }
+        throw new IllegalArgumentException("Invalid compression: " + compressionString);
+    }
+
+    // Comma separated: comments,blank,imports
+    private static Set<Compaction> parseCompactions(String compactString) {
+        Set<Compaction> compactions = new HashSet<>();
+        for (String part : compactString.split(",")) {
+            String value = part.trim();
+            if (value.equals(Compaction.COMMENTS.getValue())) {
+                compactions.add(Compaction.COMMENTS);
+            } else if (value.equals(Compaction.BLANK.getValue())) {
+                compactions.add(Compaction.BLANK);
+            } else if (value.equals(Compaction.IMPORTS.getValue())) {
+                compactions.add(Compaction.IMPORTS);
+            } else {
+                throw new IllegalArgumentException("Invalid compact option: " + value);
+            }
+        }
+        return Set.copyOf(compactions);
+    }
+
+    private static DumpFormat parseFormat(String formatString) {
+        if (formatString.equals(DumpFormat.TEXT.getValue())) {
+            return DumpFormat.TEXT;
+        } else if (formatString.equals(DumpFormat.JSONL.getValue())) {
+            return DumpFormat.JSONL;
+        } else if (formatString.equals(DumpFormat.LENGTH_PREFIXED.getValue())) {
+            return DumpFormat.LENGTH_PREFIXED;
+        }
+        throw new IllegalArgumentException("Invalid format: " + formatString);
+    }
 }
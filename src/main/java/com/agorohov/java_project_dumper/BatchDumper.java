@@ -0,0 +1,96 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Batch mode: several roots (repeated --path or --paths-from) are dumped concurrently in one JVM.
+// Every root has its own ignore rules and output file, a failed root does not stop the others.
+public final class BatchDumper {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchDumper.class);
+
+    private BatchDumper() {}
+
+    public static void dumpAll(Config config) throws IOException {
+        List<Path> roots = config.getBatchRootPaths();
+        int threads = Math.min(roots.size(), Runtime.getRuntime().availableProcessors());
+        log.debug("Dumping {} roots on {} threads", roots.size(), threads);
+
+        DumpStats total = new DumpStats(config);
+        total.getMetrics().start();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Config> rootConfigs = new ArrayList<>();
+            List<Future<DumpStats>> futures = new ArrayList<>();
+            for (Path root : roots) {
+                Config rootConfig = config.forBatchRoot(root);
+                rootConfigs.add(rootConfig);
+                futures.add(executor.submit(() -> dumpRoot(rootConfig)));
+            }
+
+            // Results are reported in the order of the roots
+            int failed = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                Config rootConfig = rootConfigs.get(i);
+                try {
+                    DumpStats stats = await(futures.get(i));
+                    total.addAll(stats);
+                    ConsolePrinter.printBatchRootDone(rootConfig, stats);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    ConsolePrinter.printBatchRootFailed(rootConfig, e);
+                    log.debug("Dump of {} failed: ", rootConfig.getRootPath(), e);
+                }
+            }
+
+            total.getMetrics().stop();
+            ConsolePrinter.printBatchSuccess(roots.size() - failed, roots.size(), total);
+            if (config.getMetricsPath() != null) {
+                Files.writeString(config.getMetricsPath(), total.toJson());
+            }
+            if (failed > 0) {
+                throw new IllegalStateException(failed + " of " + roots.size() + " roots failed");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DumpStats dumpRoot(Config config) throws IOException {
+        config.validateConfig();
+        IgnoreMatcher ignoreMatcher = IgnoreLoader.loadIgnoreMatcher(config.getRootPath(),
+                config.isGitignoreApplied());
+        return FileDumper.dump(config, ignoreMatcher);
+    }
+
+    private static DumpStats await(Future<DumpStats> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while dumping roots");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
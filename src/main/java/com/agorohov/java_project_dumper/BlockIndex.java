@@ -0,0 +1,21 @@
+package com.agorohov.java_project_dumper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Position of every file block in the written dump, in output order
+public final class BlockIndex {
+
+    public record Block(String path, BlockKind kind, long hash, long offset, long length) {
+    }
+
+    private final List<Block> blocks = new ArrayList<>();
+
+    public void add(String path, BlockKind kind, long hash, long offset, long length) {
+        blocks.add(new Block(path, kind, hash, offset, length));
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+}
@@ -0,0 +1,12 @@
+package com.agorohov.java_project_dumper;
+
+// Ordinals are written to length-prefixed dumps, new kinds go to the end
+public enum BlockKind {
+    TEXT,
+    TRUNCATED_BY_SIZE,
+    TRUNCATED_BY_LINES,
+    SAMPLED,
+    DUPLICATE,
+    BINARY,
+    UNREADABLE
+}
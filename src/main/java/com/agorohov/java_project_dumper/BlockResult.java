@@ -0,0 +1,5 @@
+package com.agorohov.java_project_dumper;
+
+// hash - content hash for the incremental cache, DumpCache.NO_HASH when not computed
+public record BlockResult(BlockKind kind, long hash) {
+}
@@ -0,0 +1,65 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+// Read-only channel over content that is already in memory, e.g. a git blob
+public final class ByteArrayChannel implements SeekableByteChannel {
+
+    private final byte[] bytes;
+    private int position = 0;
+    private boolean open = true;
+
+    public ByteArrayChannel(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        if (position >= bytes.length) {
+            return -1;
+        }
+        int length = Math.min(dst.remaining(), bytes.length - position);
+        dst.put(bytes, position, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) {
+        position = (int) Math.min(newPosition, bytes.length);
+        return this;
+    }
+
+    @Override
+    public long size() {
+        return bytes.length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
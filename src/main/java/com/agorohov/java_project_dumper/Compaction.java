@@ -0,0 +1,17 @@
+package com.agorohov.java_project_dumper;
+
+public enum Compaction {
+    COMMENTS("comments"),
+    BLANK("blank"),
+    IMPORTS("imports");
+
+    private final String value;
+
+    Compaction(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,16 @@
+package com.agorohov.java_project_dumper;
+
+public enum Compression {
+    NONE("none"),
+    GZIP("gzip");
+
+    private final String value;
+
+    Compression(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -3,29 +3,56 @@ package com.agorohov.java_project_dumper;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
 
 public class Config {
 
     private RunMode runMode = RunMode.DUMP;
     private Path rootPath = Paths.get(Constants.DEFAULT_ROOT);
+    private List<Path> batchRootPaths = List.of();
     private Path outputPath = null;
     private long maxFileSizeBytes = Constants.MAX_FILE_SIZE_BYTES_DEFAULT;
     private int maxFileLines = Constants.MAX_FILE_LINES_DEFAULT;
+    private int threads = Constants.THREADS_DEFAULT;
+    private int sampleHeadLines = 0;
+    private int sampleTailLines = 0;
+    private boolean incremental = false;
+    private Compression compression = Compression.NONE;
+    private DumpFormat format = DumpFormat.TEXT;
+    private Set<Compaction> compactions = Set.of();
+    private boolean outline = false;
+    private long splitSizeBytes = 0;
+    private boolean indexed = false;
+    private String extractGlob = null;
+    private SourceType sourceType = SourceType.FILESYSTEM;
+    private String gitRef = null;
+    private String gitBaseRef = null;
+    private Path metricsPath = null;
+    private Path jfrPath = null;
+    private int servePort = Constants.SERVE_PORT_DEFAULT;
     private boolean useGitignore = true;
+    private boolean deduplicated = true;
+    private Set<String> textExtensions = Set.of();
+    private Set<String> binaryExtensions = Set.of();
+    private List<String> includeGlobs = List.of();
     private boolean debug = false;
 
     public void validateConfig() {
-        Path root = this.getRootPath();
-        if (!Files.exists(root)) {
-            throw new IllegalArgumentException("Root path is not exists: " + root);
+        if (this.getRunMode() == RunMode.BATCH) {
+            // Every root is validated before its own dump, see BatchDumper
+            if (this.isStdoutOutput()) {
+                throw new IllegalArgumentException("--output=- cannot be used when several roots are dumped");
+            }
+            validateReportPaths();
+            return;
         }
-        if (!Files.isDirectory(root)) {
-            throw new IllegalArgumentException("Path is not a directory: " + root);
-        }
-        if (!Files.isReadable(root)) {
-            throw new IllegalArgumentException("Path is not accessible: " + root);
+        if (this.getBatchRootPaths().size() > 1) {
+            throw new IllegalArgumentException("Several --path values can be used only for a dump");
         }
 
+        validateRoot();
+
         Path out = this.getOutputPath();
         Path parent = out.getParent();
         if (parent != null) {
@@ -37,12 +64,164 @@ public class Config {
             }
         }
 
+        validateReportPaths();
+        validateLimits();
+
+        if (this.getRunMode() == RunMode.WATCH) {
+            if (this.getSourceType() != SourceType.FILESYSTEM) {
+                throw new IllegalArgumentException("--watch can be used only with the filesystem source");
+            }
+            if (this.getCompression() != Compression.NONE) {
+                throw new IllegalArgumentException("--watch cannot be used with a compressed output");
+            }
+            if (this.getSplitSizeBytes() > 0) {
+                throw new IllegalArgumentException("--watch cannot be used with --split");
+            }
+        }
+        if (this.getRunMode() == RunMode.EXTRACT) {
+            if (this.getCompression() != Compression.NONE) {
+                throw new IllegalArgumentException("--extract cannot read a compressed dump");
+            }
+            if (!Files.isRegularFile(out)) {
+                throw new IllegalArgumentException("Dump file is not exists: " + out);
+            }
+        }
+        if (this.isArchiveRoot()) {
+            if (this.getSourceType() != SourceType.FILESYSTEM) {
+                throw new IllegalArgumentException("git sources cannot be used with an archive");
+            }
+            if (this.getRunMode() == RunMode.WATCH) {
+                throw new IllegalArgumentException("--watch cannot be used with an archive");
+            }
+        }
+        if (this.getSourceType() == SourceType.GIT_REF && this.isIncremental()) {
+            throw new IllegalArgumentException("--incremental cannot be used with --git-ref");
+        }
+        if (this.getSourceType() == SourceType.GIT_DIFF && this.isIncremental()) {
+            throw new IllegalArgumentException("--incremental cannot be used with --diff");
+        }
+        if (this.getCompression() != Compression.NONE && this.isIncremental()) {
+            throw new IllegalArgumentException("--incremental cannot be used with a compressed output");
+        }
+        if (this.getSplitSizeBytes() > 0 && this.isIncremental()) {
+            throw new IllegalArgumentException("--incremental cannot be used with --split");
+        }
+        if (this.getCompression() != Compression.NONE && this.isIndexed()) {
+            throw new IllegalArgumentException("--index cannot be used with a compressed output");
+        }
+        if (this.isStdoutOutput()) {
+            if (this.getRunMode() != RunMode.DUMP) {
+                throw new IllegalArgumentException("--output=- can be used only for a dump");
+            }
+            if (this.isIncremental()) {
+                throw new IllegalArgumentException("--incremental cannot be used with --output=-");
+            }
+            if (this.getSplitSizeBytes() > 0) {
+                throw new IllegalArgumentException("--split cannot be used with --output=-");
+            }
+        }
+        // The cache, the splitter and the index work with the blocks of the text format
+        if (this.getFormat() != DumpFormat.TEXT) {
+            if (this.isIncremental() || this.getSplitSizeBytes() > 0 || this.isIndexed()) {
+                throw new IllegalArgumentException(
+                        "--incremental, --split and --index can be used only with --format=text");
+            }
+            if (this.getRunMode() == RunMode.WATCH) {
+                throw new IllegalArgumentException("--watch can be used only with --format=text");
+            }
+        }
+        validateContentOptions();
+    }
+
+    // Settings of an in-process dump to a DumpSink (see ProjectDumper), there is no output file
+    public void validateForSink() {
+        validateRoot();
+        validateLimits();
+        if (this.isArchiveRoot() && this.getSourceType() != SourceType.FILESYSTEM) {
+            throw new IllegalArgumentException("git sources cannot be used with an archive");
+        }
+        validateContentOptions();
+    }
+
+    private void validateRoot() {
+        Path root = this.getRootPath();
+        if (!Files.exists(root)) {
+            throw new IllegalArgumentException("Root path is not exists: " + root);
+        }
+        if (!Files.isDirectory(root) && !this.isArchiveRoot()) {
+            throw new IllegalArgumentException("Path is not a directory or an archive: " + root);
+        }
+        if (!Files.isReadable(root)) {
+            throw new IllegalArgumentException("Path is not accessible: " + root);
+        }
+    }
+
+    private void validateLimits() {
         if (this.getMaxFileSizeBytes() <= 0) {
             throw new IllegalArgumentException("max-file-size must be > 0");
         }
         if (this.getMaxFileLines() < 1) {
             throw new IllegalArgumentException("max-file-lines must be ≥ 1");
         }
+        if (this.getThreads() < 1) {
+            throw new IllegalArgumentException("threads must be ≥ 1");
+        }
+    }
+
+    private void validateContentOptions() {
+        if (this.isCompacting() && this.isSampleMode()) {
+            throw new IllegalArgumentException("--compact and --outline cannot be used with --sample");
+        }
+        for (String extension : this.getTextExtensions()) {
+            if (this.getBinaryExtensions().contains(extension)) {
+                throw new IllegalArgumentException("Extension is both in --text-ext and --binary-ext: " + extension);
+            }
+        }
+        if (this.getSampleHeadLines() < 0 || this.getSampleTailLines() < 0) {
+            throw new IllegalArgumentException("sample lines must be ≥ 0");
+        }
+    }
+
+    private void validateReportPaths() {
+        validateReportPath(this.getMetricsPath(), "metrics");
+        validateReportPath(this.getJfrPath(), "JFR");
+    }
+
+    private static void validateReportPath(Path file, String name) {
+        if (file != null && file.getParent() != null && !Files.isDirectory(file.getParent())) {
+            throw new IllegalArgumentException("Directory for the " + name + " file is not exists: " + file.getParent());
+        }
+    }
+
+    // Settings of one root of a batch: the output file name is kept and placed into the root,
+    // metrics are written for the whole batch only
+    public Config forBatchRoot(Path root) {
+        Config config = new Config();
+        config.runMode = RunMode.DUMP;
+        config.rootPath = root;
+        config.outputPath = outputPathIn(root, outputPath.getFileName().toString());
+        config.maxFileSizeBytes = maxFileSizeBytes;
+        config.maxFileLines = maxFileLines;
+        config.threads = threads;
+        config.sampleHeadLines = sampleHeadLines;
+        config.sampleTailLines = sampleTailLines;
+        config.incremental = incremental;
+        config.compression = compression;
+        config.format = format;
+        config.compactions = compactions;
+        config.outline = outline;
+        config.splitSizeBytes = splitSizeBytes;
+        config.indexed = indexed;
+        config.sourceType = sourceType;
+        config.gitRef = gitRef;
+        config.gitBaseRef = gitBaseRef;
+        config.useGitignore = useGitignore;
+        config.deduplicated = deduplicated;
+        config.textExtensions = textExtensions;
+        config.binaryExtensions = binaryExtensions;
+        config.includeGlobs = includeGlobs;
+        config.debug = debug;
+        return config;
     }
 
     public RunMode getRunMode() {
@@ -61,6 +240,14 @@ public class Config {
         this.rootPath = rootPath;
     }
 
+    public List<Path> getBatchRootPaths() {
+        return batchRootPaths;
+    }
+
+    public void setBatchRootPaths(List<Path> batchRootPaths) {
+        this.batchRootPaths = batchRootPaths;
+    }
+
     public Path getOutputPath() {
         return outputPath;
     }
@@ -69,6 +256,24 @@ public class Config {
         this.outputPath = outputPath;
     }
 
+    // zip, jar or tar file given as --path
+    public boolean isArchiveRoot() {
+        return ArchiveType.of(rootPath) != null;
+    }
+
+    // The dump of a directory is placed into it, the dump of an archive next to it and named after it,
+    // e.g. sources.zip-projectdump.txt (so sources.zip and sources.tar.gz do not share a dump)
+    public static Path outputPathIn(Path root, String fileName) {
+        if (ArchiveType.of(root) == null) {
+            return root.resolve(fileName);
+        }
+        return root.resolveSibling(root.getFileName() + "-" + fileName);
+    }
+
+    public boolean isStdoutOutput() {
+        return outputPath != null && outputPath.toString().equals(Constants.STDOUT_OUTPUT);
+    }
+
     public long getMaxFileSizeBytes() {
         return maxFileSizeBytes;
     }
@@ -85,6 +290,157 @@ public class Config {
         this.maxFileLines = maxFileLines;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getSampleHeadLines() {
+        return sampleHeadLines;
+    }
+
+    public void setSampleHeadLines(int sampleHeadLines) {
+        this.sampleHeadLines = sampleHeadLines;
+    }
+
+    public int getSampleTailLines() {
+        return sampleTailLines;
+    }
+
+    public void setSampleTailLines(int sampleTailLines) {
+        this.sampleTailLines = sampleTailLines;
+    }
+
+    public boolean isSampleMode() {
+        return sampleHeadLines > 0 || sampleTailLines > 0;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public DumpFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(DumpFormat format) {
+        this.format = format;
+    }
+
+    public Set<Compaction> getCompactions() {
+        return compactions;
+    }
+
+    public void setCompactions(Set<Compaction> compactions) {
+        this.compactions = compactions;
+    }
+
+    public boolean isOutline() {
+        return outline;
+    }
+
+    public void setOutline(boolean outline) {
+        this.outline = outline;
+    }
+
+    // Java and Kotlin sources go through SourceCompactor
+    public boolean isCompacting() {
+        return outline || !compactions.isEmpty();
+    }
+
+    public long getSplitSizeBytes() {
+        return splitSizeBytes;
+    }
+
+    public void setSplitSizeBytes(long splitSizeBytes) {
+        this.splitSizeBytes = splitSizeBytes;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    public String getExtractGlob() {
+        return extractGlob;
+    }
+
+    public void setExtractGlob(String extractGlob) {
+        this.extractGlob = extractGlob;
+    }
+
+    public SourceType getSourceType() {
+        return sourceType;
+    }
+
+    public void setSourceType(SourceType sourceType) {
+        this.sourceType = sourceType;
+    }
+
+    public String getGitRef() {
+        return gitRef;
+    }
+
+    public void setGitRef(String gitRef) {
+        this.gitRef = gitRef;
+    }
+
+    // Revision the changes are taken against, for --changed-since and --diff
+    public String getGitBaseRef() {
+        return gitBaseRef;
+    }
+
+    public void setGitBaseRef(String gitBaseRef) {
+        this.gitBaseRef = gitBaseRef;
+    }
+
+    public Path getJfrPath() {
+        return jfrPath;
+    }
+
+    public void setJfrPath(Path jfrPath) {
+        this.jfrPath = jfrPath;
+    }
+
+    public Path getMetricsPath() {
+        return metricsPath;
+    }
+
+    public void setMetricsPath(Path metricsPath) {
+        this.metricsPath = metricsPath;
+    }
+
+    public int getServePort() {
+        return servePort;
+    }
+
+    public void setServePort(int servePort) {
+        this.servePort = servePort;
+    }
+
+    // Files tracked by git are dumped even if they match .gitignore
+    public boolean isGitignoreApplied() {
+        return useGitignore && sourceType == SourceType.FILESYSTEM;
+    }
+
     public boolean isUseGitignore() {
         return useGitignore;
     }
@@ -93,6 +449,38 @@ public class Config {
         this.useGitignore = useGitignore;
     }
 
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(boolean deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+
+    public Set<String> getTextExtensions() {
+        return textExtensions;
+    }
+
+    public void setTextExtensions(Set<String> textExtensions) {
+        this.textExtensions = textExtensions;
+    }
+
+    public Set<String> getBinaryExtensions() {
+        return binaryExtensions;
+    }
+
+    public void setBinaryExtensions(Set<String> binaryExtensions) {
+        this.binaryExtensions = binaryExtensions;
+    }
+
+    public List<String> getIncludeGlobs() {
+        return includeGlobs;
+    }
+
+    public void setIncludeGlobs(List<String> includeGlobs) {
+        this.includeGlobs = includeGlobs;
+    }
+
     public boolean isDebug() {
         return debug;
     }
@@ -8,6 +8,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 
 public final class ConsolePrinter {
 
@@ -41,9 +44,48 @@ public final class ConsolePrinter {
     }
 
     public static void printSuccess(Config config, DumpStats stats) {
-        System.out.println("Project dump completed: " + config.getOutputPath());
+        System.out.println(successMessage(config, stats));
+    }
+
+    public static String successMessage(Config config, DumpStats stats) {
+        Path output = config.getSplitSizeBytes() > 0
+                ? DumpSplitter.manifestPath(config.getOutputPath())
+                : config.getOutputPath();
+        return "Project dump completed: " + (config.isStdoutOutput() ? "stdout" : output) + System.lineSeparator() + System.lineSeparator() + stats;
+    }
+
+    public static void printBatchRootDone(Config config, DumpStats stats) {
+        System.out.println("Project dump completed: " + config.getOutputPath()
+                + " (" + stats.getMetrics().getBlocks() + " files)");
+    }
+
+    public static void printBatchRootFailed(Config config, Exception e) {
+        System.out.println("Project dump failed: " + config.getRootPath() + " ("
+                + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()) + ")");
+    }
+
+    public static void printBatchSuccess(int completedRoots, int roots, DumpStats total) {
         System.out.println();
-        System.out.println(stats);
+        System.out.println("Dumped " + completedRoots + " of " + roots + " roots" + System.lineSeparator()
+                + System.lineSeparator() + total);
+    }
+
+    public static void printServing(int port, String token) {
+        System.out.println("Dump server is listening on http://127.0.0.1:" + port + "/dump, press Ctrl+C to stop");
+        System.out.println("Token of this run, for scripts/dumper-client.sh:");
+        System.out.println("  export PROJECT_DUMPER_TOKEN=" + token);
+    }
+
+    public static void printWatching(Config config, int watchedDirs) {
+        System.out.println("Watching " + watchedDirs + " directories of " + config.getRootPath()
+                + ", press Ctrl+C to stop");
+    }
+
+    public static void printUpdated(Config config, int changedPaths, DumpStats stats) {
+        System.out.println(LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+                + " Project dump updated: " + config.getOutputPath()
+                + " (" + changedPaths + " changed, " + stats.getRenderedBlocks() + " files read, "
+                + stats.getReusedBlocks() + " blocks reused)");
     }
 
     public static void handleError(Exception e) {
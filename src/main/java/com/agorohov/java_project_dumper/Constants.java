@@ -7,11 +7,27 @@ public final class Constants {
     public static final String DEFAULT_ROOT = ".";
     public static final long MAX_FILE_SIZE_BYTES_DEFAULT = 1024 * 1024;     // 1 Mb
     public static final int MAX_FILE_LINES_DEFAULT = 2000;
+    public static final int THREADS_DEFAULT = 1;
+    public static final int PENDING_BLOCKS_PER_THREAD = 4;
 
     public static final int SAMPLE_SIZE = 8192;                             // 8 kb
+    public static final int READ_BUFFER_SIZE = 65536;                       // 64 kb
+    public static final int WRITE_BUFFER_SIZE = 65536;                      // 64 kb
+    public static final int GZIP_CHUNK_SIZE = 1024 * 1024;                  // 1 Mb
+    public static final long WATCH_DEBOUNCE_MILLIS = 300;
+    public static final int SERVE_PORT_DEFAULT = 7071;
+    public static final int SERVE_CACHED_ROOTS = 16;
+    public static final long SPLIT_RESERVED_BYTES = 2048;                   // header and footer of a part
     public static final double BAD_BYTES_LIMIT = 0.1;                       // 10%
+    public static final int EXTENSION_LEARN_SAMPLES = 16;
+    public static final int WALK_AHEAD_ENTRIES = 50_000;                    // listed, not yet dumped entries
 
     public static final String DEFAULT_OUTPUT_FILENAME = "projectdump.txt";
+    public static final String STDOUT_OUTPUT = "-";
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final String CACHE_FILE_SUFFIX = ".cache";
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+    public static final String MANIFEST_SUFFIX = "-manifest.txt";
     public static final String DEFAULT_IGNORE_RESOURCE = "/default-ignore.patterns";
 
     public static final String GITIGNORE_FILENAME = ".gitignore";
@@ -21,11 +37,45 @@ public final class Constants {
                 Usage: java -jar project-dumper.jar [options]
                 
                 Options:
-                  --path=<path>             Root path of project (default: current dir)
-                  --output=<file>           Output dump file (default: projectdump.txt in root)
+                  --path=<path>             Root path of project (default: current dir), repeat it to dump
+                                            several projects at once, each into its own output file;
+                                            may be a .zip, .jar, .tar, .tar.gz or .tgz archive
+                  --paths-from=<file>       Dump all project roots listed in the file, one per line
+                  --output=<file>           Output dump file (default: projectdump.txt in root,
+                                            <archive>-projectdump.txt next to an archive),
+                                            a name ending with .gz turns on gzip compression,
+                                            - writes the dump to stdout and messages to stderr
+                  --format=<format>         Dump format: text (default), jsonl (a JSON object per file)
+                                            or length-prefixed (binary frames with lengths)
                   --max-file-size=<size>    Max file size (e.g., 1Mb, 4000kb, default: 1Mb)
                   --max-file-lines=<n>      Max lines in file to read (default: 2000)
+                  --threads=<n>             Number of threads walking and reading (default: 1)
+                  --sample=head:<n>,tail:<m>
+                                            Dump only the first n and the last m lines of each file
+                  --compact=<parts>         Drop parts of Java and Kotlin files: comments, blank, imports
+                                            (comma separated, e.g., --compact=comments,blank)
+                  --outline                 Dump only package, imports and signatures of Java and Kotlin
+                                            files, bodies of methods become { ... }
+                  --incremental             Reuse blocks of unchanged files from the previous dump
+                  --watch                   Keep the dump up to date, rebuilding it on every change
+                  --serve                   Run as a local dump server for scripts/dumper-client.sh
+                  --port=<n>                Port of the dump server (default: 7071)
+                  --compress=gzip           Compress the dump with gzip on all CPU cores
+                  --split=<size>            Write the dump as parts of at most this size (e.g., 500kb),
+                                            with a manifest of files in each part
+                  --index                   Append an index of file offsets to the dump
+                  --extract=<glob>          Print files matching the glob from an indexed dump (--output)
+                  --source=<source>         Files to dump: filesystem (default) or git-index (tracked files)
+                  --git-ref=<rev>           Dump files of a git commit, branch or tag without checkout
+                  --changed-since=<rev>     Dump only tracked files changed in the working tree since <rev>
+                  --diff=<revA>..<revB>     Dump only files of <revB> changed since <revA>, without checkout
+                  --metrics=<file.json>     Write phase timings, throughput and file latencies as JSON
+                  --jfr=<file.jfr>          Record the run with Java Flight Recorder, with per-file events
                   --no-gitignore            Do not include .gitignore rules
+                  --no-dedup                Write identical files in full instead of <<<SAME AS: path>>>
+                  --text-ext=<ext,...>      Treat files with these extensions as text without sniffing
+                  --binary-ext=<ext,...>    Skip files with these extensions as binary without opening them
+                  --include=<glob>          Dump only files matching the glob (e.g., src/**), can be repeated
                   --debug                   Print DEBUG logs
                   --show-default-ignore     Show list of default ignored dirs and files
                   --help                    Show this help
@@ -0,0 +1,293 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public final class ContentCopier {
+
+    private ContentCopier() {}
+
+    // Fills the buffer from the start of the file; the same bytes are used for sniffing and as the first content chunk
+    public static void readFirstChunk(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        fill(channel, buffer);
+        buffer.flip();
+    }
+
+    public static CopyResult copyHead(SeekableByteChannel channel, ByteBuffer buffer, long maxBytes, int maxLines,
+                                      DumpWriter writer) throws IOException {
+        return copyHead(channel, buffer, maxBytes, maxLines, DetectedCharset.UTF_8, writer);
+    }
+
+    // Copies the beginning of the file limited by size and lines, the buffer must hold the first chunk.
+    // Only one buffer of the file is in memory at a time, long lines are cut at the size limit.
+    // The charset must be ASCII compatible, Latin-1 content is converted to UTF-8 on the way.
+    public static CopyResult copyHead(SeekableByteChannel channel, ByteBuffer buffer, long maxBytes, int maxLines,
+                                      DetectedCharset charset, DumpWriter writer) throws IOException {
+        byte[] data = buffer.array();
+        boolean firstChunk = true;
+        long chunkStart = 0;
+        long end = -1;
+        int lineCount = 0;
+        byte lastByte = '\n';
+        Truncation truncation = Truncation.NONE;
+
+        // Looking for the end of the content to output, the content itself stays in the file
+        scan:
+        while (buffer.hasRemaining()) {
+            int length = buffer.limit();
+            int scanLength = (int) Math.min(length, maxBytes - chunkStart);
+            for (int i = 0; i < scanLength; i++) {
+                if (data[i] == '\n' && ++lineCount >= maxLines) {
+                    end = chunkStart + i + 1;
+                    truncation = Truncation.LINES;
+                    break scan;
+                }
+            }
+            if (scanLength < length) {
+                int cut = charset == DetectedCharset.UTF_8 ? charBoundaryBefore(data, scanLength) : scanLength;
+                end = chunkStart + cut;
+                truncation = Truncation.SIZE;
+                break;
+            }
+            lastByte = data[length - 1];
+            chunkStart += length;
+
+            if (length < buffer.capacity()) {
+                break;      // end of file
+            }
+            firstChunk = false;
+            buffer.clear();
+            fill(channel, buffer);
+            buffer.flip();
+        }
+
+        if (end < 0) {
+            end = chunkStart;
+        } else if (truncation == Truncation.LINES && !hasMore(channel, buffer, end, chunkStart)) {
+            truncation = Truncation.NONE;           // exactly max-file-lines lines
+        }
+        if (end > chunkStart) {
+            lastByte = data[(int) (end - chunkStart - 1)];
+        }
+
+        if (firstChunk) {
+            writeBytes(data, 0, (int) end, charset, writer);
+        } else {
+            copyRange(channel, buffer, 0, end, charset, writer);
+        }
+        if (end > 0 && lastByte != '\n') {
+            writer.write(System.lineSeparator());
+        }
+
+        return new CopyResult(end, truncation);
+    }
+
+    // Feeds the beginning of the file limited by size and lines to the lexer of --compact and --outline,
+    // the buffer must hold the first chunk. The limits apply to the source, as without compaction.
+    public static CopyResult copyCompacted(SeekableByteChannel channel, ByteBuffer buffer, long maxBytes, int maxLines,
+                                           DetectedCharset charset, SourceCompactor compactor) throws IOException {
+        byte[] data = buffer.array();
+        long chunkStart = 0;
+        int lineCount = 0;
+        while (buffer.hasRemaining()) {
+            int length = buffer.limit();
+            int scanLength = (int) Math.min(length, maxBytes - chunkStart);
+            for (int i = 0; i < scanLength; i++) {
+                if (data[i] == '\n' && ++lineCount >= maxLines) {
+                    long end = chunkStart + i + 1;
+                    compactor.feed(data, 0, i + 1);
+                    compactor.finish();
+                    return new CopyResult(end,
+                            hasMore(channel, buffer, end, chunkStart) ? Truncation.LINES : Truncation.NONE);
+                }
+            }
+            if (scanLength < length) {
+                int cut = charset == DetectedCharset.UTF_8 ? charBoundaryBefore(data, scanLength) : scanLength;
+                compactor.feed(data, 0, cut);
+                compactor.finish();
+                return new CopyResult(chunkStart + cut, Truncation.SIZE);
+            }
+            compactor.feed(data, 0, length);
+            chunkStart += length;
+
+            if (length < buffer.capacity()) {
+                break;      // end of file
+            }
+            buffer.clear();
+            fill(channel, buffer);
+            buffer.flip();
+        }
+        compactor.finish();
+        return new CopyResult(chunkStart, Truncation.NONE);
+    }
+
+    // Finds the start of the last maxLines lines reading backwards from the end of the file,
+    // the middle of the file is never read. The tail starts not before 'from' and is at most maxBytes long.
+    public static long findTailStart(SeekableByteChannel channel, ByteBuffer buffer, long from, long maxBytes, int maxLines,
+                                     DetectedCharset charset) throws IOException {
+        long size = channel.size();
+        long limit = Math.max(from, size - maxBytes);
+        if (maxLines == 0 || size <= limit) {
+            return size;
+        }
+
+        byte[] data = buffer.array();
+        int lineCount = 0;
+        long position = size;
+        while (position > limit) {
+            int length = (int) Math.min(buffer.capacity(), position - limit);
+            position -= length;
+            readAt(channel, buffer, position, length);
+
+            for (int i = length - 1; i >= 0; i--) {
+                // A line separator at the very end of the file does not start a new line
+                if (data[i] == '\n' && position + i < size - 1 && ++lineCount >= maxLines) {
+                    return position + i + 1;
+                }
+            }
+        }
+
+        // Not enough lines before the limit, the buffer holds the bytes starting at the limit
+        if (limit == from || charset != DetectedCharset.UTF_8) {
+            return limit;
+        }
+        return limit + charBoundaryAfter(data, buffer.limit());
+    }
+
+    // Copies the range of the file to the end, appending a line separator if the file does not end with one
+    public static void copyTail(SeekableByteChannel channel, ByteBuffer buffer, long start, DetectedCharset charset,
+                                DumpWriter writer) throws IOException {
+        long size = channel.size();
+        if (start >= size) {
+            return;
+        }
+        copyRange(channel, buffer, start, size - start, charset, writer);
+
+        readAt(channel, buffer, size - 1, 1);
+        if (buffer.array()[0] != '\n') {
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    // Charsets without ASCII line ends (UTF-16) are decoded, the line limit applies to the decoded text.
+    // At most maxBytes of the file are read, the byte order mark is skipped.
+    public static CopyResult copyDecoded(SeekableByteChannel channel, ByteBuffer buffer, long maxBytes, int maxLines,
+                                         DetectedCharset charset, DumpWriter writer) throws IOException {
+        long size = channel.size();
+        int start = charset.getBomLength();
+        int length = (int) Math.min(size - start, Math.min(maxBytes, Integer.MAX_VALUE - 8));
+        length -= length % 2;               // whole UTF-16 code units only
+        byte[] content = new byte[length];
+        for (int offset = 0; offset < length; offset += buffer.limit()) {
+            readAt(channel, buffer, start + offset, Math.min(buffer.capacity(), length - offset));
+            if (!buffer.hasRemaining()) {
+                length = offset;            // the file got shorter
+                break;
+            }
+            buffer.get(content, offset, buffer.remaining());
+        }
+
+        String text = new String(content, 0, length, charset.getCharset());
+        Truncation truncation = start + length < size ? Truncation.SIZE : Truncation.NONE;
+        int lineCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && ++lineCount >= maxLines) {
+                if (i + 1 < text.length() || truncation == Truncation.SIZE) {
+                    truncation = Truncation.LINES;
+                }
+                text = text.substring(0, i + 1);
+                break;
+            }
+        }
+        if (truncation == Truncation.SIZE && !text.isEmpty()
+                && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+            text = text.substring(0, text.length() - 1);
+        }
+
+        writer.write(text);
+        if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') {
+            writer.write(System.lineSeparator());
+        }
+        return new CopyResult(start + length, truncation);
+    }
+
+    public static void writeBytes(byte[] data, int offset, int length, DetectedCharset charset, DumpWriter writer)
+            throws IOException {
+        if (charset == DetectedCharset.LATIN_1) {
+            writer.write(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+        } else {
+            writer.write(data, offset, length);
+        }
+    }
+
+    // UTF-8 ranges are copied without passing through the heap, Latin-1 ones are converted chunk by chunk
+    private static void copyRange(SeekableByteChannel channel, ByteBuffer buffer, long start, long count,
+                                  DetectedCharset charset, DumpWriter writer) throws IOException {
+        if (charset != DetectedCharset.LATIN_1) {
+            writer.transferFrom(channel, start, count);
+            return;
+        }
+        for (long position = start; position < start + count; position += buffer.limit()) {
+            readAt(channel, buffer, position, (int) Math.min(buffer.capacity(), start + count - position));
+            if (!buffer.hasRemaining()) {
+                break;
+            }
+            writeBytes(buffer.array(), 0, buffer.limit(), charset, writer);
+        }
+    }
+
+    private static boolean hasMore(SeekableByteChannel channel, ByteBuffer buffer, long end, long chunkStart)
+            throws IOException {
+        if (end < chunkStart + buffer.limit()) {
+            return true;
+        }
+        return channel.size() > end;
+    }
+
+    // Moves the cut back so that a multibyte UTF-8 character is not split
+    private static int charBoundaryBefore(byte[] data, int cut) {
+        int i = cut;
+        while (i > 0 && i > cut - 4 && isContinuationByte(data[i])) {
+            i--;
+        }
+        return i;
+    }
+
+    // Moves the start forward past the rest of a split multibyte UTF-8 character
+    private static int charBoundaryAfter(byte[] data, int length) {
+        int i = 0;
+        while (i < length && i < 3 && isContinuationByte(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isContinuationByte(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    public static void readAt(SeekableByteChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        if (channel instanceof FileChannel fileChannel) {
+            while (buffer.hasRemaining() && fileChannel.read(buffer, position + buffer.position()) != -1) {
+                // positional read, the channel position is not changed
+            }
+        } else {
+            channel.position(position);
+            fill(channel, buffer);
+        }
+        buffer.flip();
+    }
+
+    private static void fill(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            // read until the buffer is full or the end of file
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.agorohov.java_project_dumper;
+
+// end - offset in the source file right after the last copied byte
+public record CopyResult(long end, Truncation truncation) {
+}
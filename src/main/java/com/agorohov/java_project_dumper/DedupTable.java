@@ -0,0 +1,66 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Text files already written to the dump, by size and content hash, so later copies can refer to them.
+// A hash match is confirmed by comparing the files, a CRC32C collision never produces a wrong reference.
+// Used by the writing thread only.
+public final class DedupTable {
+
+    // contentLength - bytes between the start and the end lines of the original block
+    public record Original(FileEntry entry, long contentLength) {
+    }
+
+    private record Key(long size, long hash) {
+    }
+
+    private final Map<Key, List<Original>> originals = new HashMap<>();
+    private final ByteBuffer originalBuffer = ByteBuffer.allocate(Constants.READ_BUFFER_SIZE);
+    private final ByteBuffer copyBuffer = ByteBuffer.allocate(Constants.READ_BUFFER_SIZE);
+
+    public Original find(FileEntry entry, long hash) {
+        List<Original> candidates = originals.get(new Key(entry.size(), hash));
+        if (candidates == null) {
+            return null;
+        }
+        for (Original original : candidates) {
+            if (sameContent(original.entry(), entry)) {
+                return original;
+            }
+        }
+        return null;
+    }
+
+    public void add(FileEntry entry, long hash, long contentLength) {
+        originals.computeIfAbsent(new Key(entry.size(), hash), key -> new ArrayList<>(1))
+                .add(new Original(entry, contentLength));
+    }
+
+    private boolean sameContent(FileEntry original, FileEntry copy) {
+        try (SeekableByteChannel originalChannel = original.open();
+             SeekableByteChannel copyChannel = copy.open()) {
+            long size = originalChannel.size();
+            if (size != copyChannel.size()) {
+                return false;
+            }
+            for (long position = 0; position < size; position += originalBuffer.limit()) {
+                int length = (int) Math.min(originalBuffer.capacity(), size - position);
+                ContentCopier.readAt(originalChannel, originalBuffer, position, length);
+                ContentCopier.readAt(copyChannel, copyBuffer, position, length);
+                if (!originalBuffer.hasRemaining() || !originalBuffer.equals(copyBuffer)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // The original or the copy changed or disappeared, write the copy in full
+            return false;
+        }
+    }
+}
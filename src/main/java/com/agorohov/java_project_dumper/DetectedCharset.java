@@ -0,0 +1,34 @@
+package com.agorohov.java_project_dumper;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Charset of a file found by TextDetector, BINARY for files whose content is not dumped
+public enum DetectedCharset {
+    UTF_8(StandardCharsets.UTF_8, 0),
+    UTF_16BE(StandardCharsets.UTF_16BE, 2),
+    UTF_16LE(StandardCharsets.UTF_16LE, 2),
+    LATIN_1(StandardCharsets.ISO_8859_1, 0),
+    BINARY(null, 0);
+
+    private final Charset charset;
+    private final int bomLength;
+
+    DetectedCharset(Charset charset, int bomLength) {
+        this.charset = charset;
+        this.bomLength = bomLength;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getBomLength() {
+        return bomLength;
+    }
+
+    // Every byte below 128 is the ASCII character, so lines can be found in the raw bytes
+    public boolean isAsciiCompatible() {
+        return this == UTF_8 || this == LATIN_1;
+    }
+}
@@ -0,0 +1,262 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+// Sidecar cache of the incremental mode: where each file block is in the previous dump
+// and the fingerprint of the file it was rendered from
+public final class DumpCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpCache.class);
+
+    public static final long NO_HASH = -1;
+
+    private static final String HEADER = "# java-project-dumper cache v1";
+
+    public record Entry(String path, long size, long lastModified, long hash, BlockKind kind,
+                        long offset, long length) {
+    }
+
+    // Parsed cache files kept in memory between dumps by the dump server. The stamp covers the cache file,
+    // the dump and the options, any change of them makes the kept entries stale.
+    public interface EntryStore {
+        Map<String, Entry> get(Path cachePath, String stamp);
+
+        void put(Path cachePath, String stamp, Map<String, Entry> entries);
+    }
+
+    private final Path outputPath;
+    private final Path cachePath;
+    private final Path tempOutputPath;
+    private final String key;
+    private final Map<String, Entry> previous;
+    private final FileChannel previousOutput;
+    private final List<Entry> current = new ArrayList<>();
+    private final EntryStore store;
+
+    private DumpCache(Path outputPath, String key, Map<String, Entry> previous, EntryStore store)
+            throws IOException {
+        this.store = store;
+        this.outputPath = outputPath;
+        this.cachePath = cachePath(outputPath);
+        this.tempOutputPath = tempOutputPath(outputPath);
+        this.key = key;
+        this.previous = previous;
+        this.previousOutput = previous.isEmpty() ? null : FileChannel.open(outputPath, StandardOpenOption.READ);
+    }
+
+    public static DumpCache load(Config config) throws IOException {
+        return load(config, null);
+    }
+
+    public static DumpCache load(Config config, EntryStore store) throws IOException {
+        Path outputPath = config.getOutputPath().toAbsolutePath().normalize();
+        Path cachePath = cachePath(outputPath);
+        String key = cacheKey(config);
+
+        Map<String, Entry> previous = new HashMap<>();
+        String stamp = store != null ? stamp(cachePath, outputPath, key) : null;
+        Map<String, Entry> stored = stamp != null ? store.get(cachePath, stamp) : null;
+        if (stored != null) {
+            previous = stored;
+        } else if (Files.exists(cachePath) && Files.exists(outputPath)) {
+            try {
+                previous = readEntries(cachePath, outputPath, key);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Cannot read dump cache {}: {}", cachePath, e.getMessage());
+                previous = new HashMap<>();
+            }
+        }
+        log.debug("Loaded {} cached blocks from {}", previous.size(), cachePath);
+
+        return new DumpCache(outputPath, key, previous, store);
+    }
+
+    public Path getTempOutputPath() {
+        return tempOutputPath;
+    }
+
+    // Cache files live next to the output and are never dumped, even when the incremental mode is off
+    public static boolean isCacheFile(Path normalizedOutput, Path normalizedFile) {
+        return normalizedFile.equals(cachePath(normalizedOutput))
+                || normalizedFile.equals(tempOutputPath(normalizedOutput));
+    }
+
+    // Same size and modification time, or same size and content hash if the file was only touched
+    public Entry findUnchanged(FileEntry entry) throws IOException {
+        Entry cached = previous.get(entry.path());
+        if (cached == null || cached.size() != entry.size()) {
+            return null;
+        }
+        if (cached.lastModified() == entry.lastModified()) {
+            return cached;
+        }
+        return cached.hash() == contentHash(entry) ? cached : null;
+    }
+
+    // Copies the cached block straight from the previous dump file
+    public void splice(Entry cached, FileEntry entry, DumpWriter writer) throws IOException {
+        long offset = writer.position();
+        writer.transferFrom(previousOutput, cached.offset(), cached.length());
+        current.add(new Entry(entry.path(), entry.size(), entry.lastModified(), cached.hash(), cached.kind(),
+                offset, cached.length()));
+    }
+
+    public void record(FileEntry entry, BlockResult result, long offset, long length) {
+        // Read errors may be temporary, such files are rendered again next time.
+        // A duplicate refers to another block that may change, it is rendered again as well.
+        if (result.kind() != BlockKind.UNREADABLE && result.kind() != BlockKind.DUPLICATE) {
+            current.add(new Entry(entry.path(), entry.size(), entry.lastModified(), result.hash(), result.kind(),
+                    offset, length));
+        }
+    }
+
+    // Replaces the previous dump with the new one and saves the cache for it
+    public void commit() throws IOException {
+        closePreviousOutput();
+        try {
+            Files.move(tempOutputPath, outputPath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempOutputPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(cachePath, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "\n");
+            writer.write("key\t" + key + "\n");
+            writer.write("output\t" + Files.size(outputPath) + "\t"
+                    + Files.getLastModifiedTime(outputPath).toMillis() + "\n");
+            for (Entry entry : current) {
+                writer.write(entry.size() + "\t" + entry.lastModified() + "\t" + entry.hash() + "\t"
+                        + entry.kind() + "\t" + entry.offset() + "\t" + entry.length() + "\t"
+                        + entry.path() + "\n");
+            }
+        }
+        log.debug("Saved {} blocks to dump cache {}", current.size(), cachePath);
+
+        if (store != null) {
+            Map<String, Entry> entries = new HashMap<>();
+            for (Entry entry : current) {
+                entries.put(entry.path(), entry);
+            }
+            store.put(cachePath, stamp(cachePath, outputPath, key), entries);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closePreviousOutput();
+        Files.deleteIfExists(tempOutputPath);       // left only if the dump failed
+    }
+
+    public static long contentHash(FileEntry entry) throws IOException {
+        try (SeekableByteChannel channel = entry.open()) {
+            return contentHash(channel, ByteBuffer.allocate(Constants.READ_BUFFER_SIZE));
+        }
+    }
+
+    public static long contentHash(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if (channel instanceof HeadTailChannel headTail) {
+            return headTail.contentHash();      // the middle was hashed while reading, it is not kept
+        }
+        CRC32C crc = new CRC32C();
+        long size = channel.size();
+        for (long position = 0; position < size; position += buffer.limit()) {
+            ContentCopier.readAt(channel, buffer, position, (int) Math.min(buffer.capacity(), size - position));
+            if (!buffer.hasRemaining()) {
+                break;
+            }
+            crc.update(buffer);
+        }
+        return crc.getValue();
+    }
+
+    private static Path cachePath(Path outputPath) {
+        return outputPath.resolveSibling(outputPath.getFileName() + Constants.CACHE_FILE_SUFFIX);
+    }
+
+    public static Path tempOutputPath(Path outputPath) {
+        return outputPath.resolveSibling(outputPath.getFileName() + Constants.TEMP_FILE_SUFFIX);
+    }
+
+    // null if there is no cache to keep
+    private static String stamp(Path cachePath, Path outputPath, String key) throws IOException {
+        if (!Files.exists(cachePath) || !Files.exists(outputPath)) {
+            return null;
+        }
+        return Files.size(cachePath) + ":" + Files.getLastModifiedTime(cachePath) + ":"
+                + Files.size(outputPath) + ":" + Files.getLastModifiedTime(outputPath) + ":" + key;
+    }
+
+    private void closePreviousOutput() throws IOException {
+        if (previousOutput != null && previousOutput.isOpen()) {
+            previousOutput.close();
+        }
+    }
+
+    // Everything that changes how a block is rendered or which files get one: the extension lists
+    // decide text or binary without sniffing
+    private static String cacheKey(Config config) {
+        return config.getMaxFileSizeBytes() + ":" + config.getMaxFileLines() + ":"
+                + config.getSampleHeadLines() + ":" + config.getSampleTailLines() + ":"
+                + config.getCompactions().stream().map(Compaction::getValue).sorted().toList() + ":"
+                + config.isOutline() + ":"
+                + config.getTextExtensions().stream().sorted().toList() + ":"
+                + config.getBinaryExtensions().stream().sorted().toList() + ":"
+                + config.getIncludeGlobs() + ":"
+                + System.lineSeparator().length();
+    }
+
+    private static Map<String, Entry> readEntries(Path cachePath, Path outputPath, String key) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(cachePath, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                log.debug("Unknown dump cache format, ignoring {}", cachePath);
+                return entries;
+            }
+            if (!("key\t" + key).equals(reader.readLine())) {
+                log.debug("Dump options changed, ignoring {}", cachePath);
+                return entries;
+            }
+            String[] output = reader.readLine().split("\t");
+            if (Long.parseLong(output[1]) != Files.size(outputPath)
+                    || Long.parseLong(output[2]) != Files.getLastModifiedTime(outputPath).toMillis()) {
+                log.debug("Previous dump was modified, ignoring {}", cachePath);
+                return entries;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 7);
+                Entry entry = new Entry(fields[6],
+                        Long.parseLong(fields[0]),
+                        Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]),
+                        BlockKind.valueOf(fields[3]),
+                        Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]));
+                entries.put(entry.path(), entry);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,125 @@
+package com.agorohov.java_project_dumper;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Flight recorder events of a dump, see --jfr. Fields are filled only if shouldCommit() is true.
+// Stack traces are off, the path of the file or directory tells where the time went.
+public final class DumpEvents {
+
+    private static final String CATEGORY = "Java Project Dumper";
+
+    private DumpEvents() {}
+
+    // The first event class loaded starts the recorder machinery, a few hundred ms of startup, so events
+    // are created only once the recorder runs: --jfr, -XX:StartFlightRecording or a later JFR.start
+    public static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    @Name("com.agorohov.java_project_dumper.DirectoryVisit")
+    @Label("Directory Visit")
+    @Description("Listing of a directory and the stat calls of its entries")
+    @Category({CATEGORY, "Traversal"})
+    @StackTrace(false)
+    public static final class DirectoryVisit extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Entries")
+        public int entries;
+    }
+
+    // Checks take microseconds, only the slow ones are recorded by default
+    @Name("com.agorohov.java_project_dumper.IgnoreDecision")
+    @Label("Ignore Decision")
+    @Description("Check of a path against the ignore rules")
+    @Category({CATEGORY, "Ignore"})
+    @StackTrace(false)
+    @Threshold("100 us")
+    public static final class IgnoreDecision extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Directory")
+        public boolean directory;
+
+        @Label("Ignored")
+        public boolean ignored;
+    }
+
+    @Name("com.agorohov.java_project_dumper.IgnoreRulesLoad")
+    @Label("Ignore Rules Load")
+    @Description("Reading and compiling of an ignore file")
+    @Category({CATEGORY, "Ignore"})
+    @StackTrace(false)
+    public static final class IgnoreRulesLoad extends Event {
+        @Label("File")
+        public String file;
+
+        @Label("Rules")
+        public int rules;
+    }
+
+    @Name("com.agorohov.java_project_dumper.Sniff")
+    @Label("Sniff")
+    @Description("Text or binary detection of a file by its first chunk")
+    @Category({CATEGORY, "Files"})
+    @StackTrace(false)
+    public static final class Sniff extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Charset")
+        @Description("Detected charset, binary for a binary file")
+        public String charset;
+
+        @Label("By Extension")
+        @Description("The extension said it is text, only the charset was detected")
+        public boolean byExtension;
+    }
+
+    @Name("com.agorohov.java_project_dumper.FileCopy")
+    @Label("File Read and Copy")
+    @Description("Reading a file and writing its block body, from opening it to the truncation marker")
+    @Category({CATEGORY, "Files"})
+    @StackTrace(false)
+    public static final class FileCopy extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("File Size")
+        @DataAmount
+        public long fileSize;
+
+        @Label("Written")
+        @DataAmount
+        public long written;
+
+        @Label("Kind")
+        @Description("text, truncated_by_size, truncated_by_lines, sampled, duplicate, binary or unreadable")
+        public String kind;
+    }
+
+    @Name("com.agorohov.java_project_dumper.OutputFlush")
+    @Label("Output Flush")
+    @Description("Write of buffered bytes or a file range to the dump output")
+    @Category({CATEGORY, "Output"})
+    @StackTrace(false)
+    public static final class OutputFlush extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Transfer")
+        @Description("A file range copied by the channel, not through the write buffer")
+        public boolean transfer;
+    }
+}
@@ -0,0 +1,59 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Extract mode: prints the blocks of the files matching a glob from an indexed dump.
+// The index is read from the end of the dump and every block is mapped at its offset,
+// the rest of the dump is never read.
+public final class DumpExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpExtractor.class);
+
+    private DumpExtractor() {}
+
+    public static void extract(Config config) throws IOException {
+        // stdout is not closed, the stream is only a way to get a channel for it
+        extract(config, new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    // out - where the blocks are written, it is not closed
+    public static void extract(Config config, WritableByteChannel out) throws IOException {
+        Path dumpPath = config.getOutputPath();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + config.getExtractGlob());
+
+        int extracted = 0;
+        try (FileChannel dump = FileChannel.open(dumpPath, StandardOpenOption.READ)) {
+            List<BlockIndex.Block> blocks = DumpIndex.read(dump);
+            log.debug("Read index of {} blocks from {}", blocks.size(), dumpPath);
+
+            for (BlockIndex.Block block : blocks) {
+                if (!matcher.matches(Paths.get(block.path()))) {
+                    continue;
+                }
+                MappedByteBuffer content = dump.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+                while (content.hasRemaining()) {
+                    out.write(content);
+                }
+                extracted++;
+            }
+        }
+
+        if (extracted == 0) {
+            throw new IllegalArgumentException("No files in the dump match: " + config.getExtractGlob());
+        }
+    }
+}
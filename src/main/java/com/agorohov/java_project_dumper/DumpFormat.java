@@ -0,0 +1,17 @@
+package com.agorohov.java_project_dumper;
+
+public enum DumpFormat {
+    TEXT("text"),
+    JSONL("jsonl"),
+    LENGTH_PREFIXED("length-prefixed");
+
+    private final String value;
+
+    DumpFormat(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+
+// Layout of the dump around the file blocks. The body of a block is the same in every format:
+// the dumped content with the truncation and skip markers, or the binary/unreadable marker.
+public interface DumpFormatter {
+
+    void writeHeader(DumpWriter writer, String title) throws IOException;
+
+    void writeBlock(DumpWriter writer, String path, BlockKind kind, byte[] body) throws IOException;
+
+    void writeDuplicate(DumpWriter writer, String path, String originalPath) throws IOException;
+
+    void writeFooter(DumpWriter writer, DumpStats stats) throws IOException;
+
+    static DumpFormatter of(DumpFormat format) {
+        return switch (format) {
+            case TEXT -> TextFormatter.INSTANCE;
+            case JSONL -> JsonLinesFormatter.INSTANCE;
+            case LENGTH_PREFIXED -> LengthPrefixedFormatter.INSTANCE;
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Index of the file blocks at the end of a dump (--index), so a reader can seek to a file without scanning:
+//
+// <<<INDEX>>>
+// offset<TAB>length<TAB>kind<TAB>hash<TAB>path      one line per block, hash is CRC32C of the file for TEXT
+//                                                  blocks, - for cut bodies and markers
+// <<<END INDEX>>>
+// <<<INDEX 000000000003f2a1 00000000000012c0>>>     trailer: index offset and length in hex, always 46 bytes
+public final class DumpIndex {
+
+    public static final int TRAILER_SIZE = 46;
+
+    private static final String START = "<<<INDEX>>>";
+    private static final String END = "<<<END INDEX>>>";
+
+    // Bytes of an index besides its block lines
+    public static final int FRAME_SIZE = START.length() + END.length() + 2 + TRAILER_SIZE;
+
+    private static final String TRAILER_FORMAT = "<<<INDEX %016x %016x>>>\n";
+    private static final String TRAILER_PREFIX = "<<<INDEX ";
+
+    private DumpIndex() {}
+
+    // shift - offset of the blocks in this file relative to their offsets in the index
+    public static void write(DumpWriter writer, List<BlockIndex.Block> blocks, long shift) throws IOException {
+        long indexOffset = writer.position();
+        StringBuilder index = new StringBuilder();
+        index.append(START).append('\n');
+        for (BlockIndex.Block block : blocks) {
+            index.append(line(block, block.offset() + shift));
+        }
+        index.append(END).append('\n');
+
+        byte[] bytes = index.toString().getBytes(StandardCharsets.UTF_8);
+        writer.write(bytes);
+        writer.write(TRAILER_FORMAT.formatted(indexOffset, bytes.length));
+    }
+
+    // Bytes of the index line of a block at the offset, lets DumpSplitter keep indexed parts within the limit
+    public static long lineLength(BlockIndex.Block block, long offset) {
+        return line(block, offset).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String line(BlockIndex.Block block, long offset) {
+        return offset + "\t" + block.length() + "\t" + block.kind() + "\t"
+                + (block.hash() == DumpCache.NO_HASH ? "-" : Long.toHexString(block.hash())) + "\t"
+                + block.path() + "\n";
+    }
+
+    // Only the trailer and the index are mapped, the blocks are not touched
+    public static List<BlockIndex.Block> read(FileChannel dump) throws IOException {
+        long size = dump.size();
+        if (size < TRAILER_SIZE) {
+            throw new IllegalArgumentException("Dump has no index, create it with --index");
+        }
+        String trailer = decode(dump.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE));
+        if (!trailer.startsWith(TRAILER_PREFIX) || !trailer.endsWith(">>>\n")) {
+            throw new IllegalArgumentException("Dump has no index, create it with --index");
+        }
+
+        long indexOffset;
+        long indexLength;
+        try {
+            indexOffset = Long.parseLong(trailer.substring(9, 25), 16);
+            indexLength = Long.parseLong(trailer.substring(26, 42), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid dump index trailer");
+        }
+        if (indexOffset < 0 || indexLength > Integer.MAX_VALUE || indexOffset + indexLength > size - TRAILER_SIZE) {
+            throw new IllegalArgumentException("Invalid dump index trailer");
+        }
+
+        String index = decode(dump.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexLength));
+        List<BlockIndex.Block> blocks = new ArrayList<>();
+        for (String line : index.split("\n")) {
+            if (line.equals(START) || line.equals(END) || line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", 5);
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("Invalid dump index line: " + line);
+            }
+            blocks.add(new BlockIndex.Block(fields[4],
+                    BlockKind.valueOf(fields[2]),
+                    fields[3].equals("-") ? DumpCache.NO_HASH : Long.parseUnsignedLong(fields[3], 16),
+                    Long.parseLong(fields[0]),
+                    Long.parseLong(fields[1])));
+        }
+        return blocks;
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
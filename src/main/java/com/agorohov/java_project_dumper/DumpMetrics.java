@@ -0,0 +1,103 @@
+package com.agorohov.java_project_dumper;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-phase timers, byte counters and file latencies of a dump, updated from worker threads
+public final class DumpMetrics {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final LongAdder[] phaseNanos = new LongAdder[DumpPhase.values().length];
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder sourceBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LatencyHistogram fileLatency = new LatencyHistogram();
+    private volatile long startNanos;
+    private volatile long wallNanos;
+
+    public DumpMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        wallNanos = System.nanoTime() - startNanos;
+    }
+
+    public void addNanos(DumpPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    public long getNanos(DumpPhase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    // A file block was written, read from the source file of the given size
+    public void countBlock(long fileSize) {
+        blocks.increment();
+        sourceBytes.add(fileSize);
+    }
+
+    public long getBlocks() {
+        return blocks.sum();
+    }
+
+    public void addOutputBytes(long bytes) {
+        outputBytes.add(bytes);
+    }
+
+    // Time to render the block of one file, from opening it to the end marker
+    public void recordFileLatency(long nanos) {
+        fileLatency.record(nanos);
+    }
+
+    // Counters of another dump, the wall time is not added
+    public void addAll(DumpMetrics other) {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i].add(other.phaseNanos[i].sum());
+        }
+        blocks.add(other.blocks.sum());
+        sourceBytes.add(other.sourceBytes.sum());
+        outputBytes.add(other.outputBytes.sum());
+        fileLatency.addAll(other.fileLatency);
+    }
+
+    public String toJson() {
+        double seconds = wallNanos / NANOS_PER_SECOND;
+        StringBuilder json = new StringBuilder();
+        json.append("  \"wallNanos\": ").append(wallNanos).append(",\n");
+        json.append("  \"blocks\": ").append(blocks.sum()).append(",\n");
+        json.append("  \"sourceBytes\": ").append(sourceBytes.sum()).append(",\n");
+        json.append("  \"outputBytes\": ").append(outputBytes.sum()).append(",\n");
+        json.append("  \"filesPerSecond\": ").append(rate(blocks.sum(), seconds)).append(",\n");
+        json.append("  \"sourceMBPerSecond\": ").append(rate(sourceBytes.sum() / BYTES_PER_MB, seconds)).append(",\n");
+        json.append("  \"outputMBPerSecond\": ").append(rate(outputBytes.sum() / BYTES_PER_MB, seconds)).append(",\n");
+
+        json.append("  \"phaseNanos\": {\n");
+        DumpPhase[] phases = DumpPhase.values();
+        for (int i = 0; i < phases.length; i++) {
+            json.append("    \"").append(phases[i].getValue()).append("\": ").append(getNanos(phases[i]));
+            json.append(i < phases.length - 1 ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+
+        json.append("  \"fileLatencyNanos\": {\n");
+        json.append("    \"count\": ").append(fileLatency.getCount()).append(",\n");
+        json.append("    \"p50\": ").append(fileLatency.percentile(50)).append(",\n");
+        json.append("    \"p99\": ").append(fileLatency.percentile(99)).append(",\n");
+        json.append("    \"max\": ").append(fileLatency.getMax()).append("\n");
+        json.append("  }");
+        return json.toString();
+    }
+
+    private static String rate(double amount, double seconds) {
+        return String.format(Locale.ROOT, "%.2f", seconds > 0 ? amount / seconds : 0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.agorohov.java_project_dumper;
+
+public enum DumpPhase {
+    TRAVERSAL("traversal"),     // walking the tree or the git index, without the work on found files
+    IGNORE("ignore"),           // ignore rule checks and loading of nested .gitignore files
+    SNIFF("sniff"),             // text or binary detection
+    READ("read"),               // reading and copying file content into blocks
+    WRITE("write");             // writes to the output file
+
+    private final String value;
+
+    DumpPhase(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,195 @@
+package com.agorohov.java_project_dumper;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+// Resident dump server: runs dumps for the thin client without JVM startup, logging initialization
+// and class loading on every call. Only the loopback interface is bound.
+//
+// POST /dump with the command line arguments in the body, one per line. The X-Dumper-Cwd header is the
+// absolute working directory of the client, relative paths are resolved against it. The response is the same
+// report the command line prints, status 400 for invalid arguments and 500 for failed dumps.
+// With --output=- the response is the dump itself, streamed while it is written.
+//
+// A dump writes files as the user of the server, so every request must carry the token printed at startup
+// in "Authorization: Bearer <token>". Browsers send neither this nor X-Dumper-Cwd without a CORS preflight,
+// which the server does not answer, and requests with an Origin header are rejected anyway.
+public final class DumpServer {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpServer.class);
+
+    private static final String CWD_HEADER = "X-Dumper-Cwd";
+    private static final String AUTH_PREFIX = "Bearer ";
+    private static final int TOKEN_BYTES = 32;
+
+    // Least recently used roots are dropped first
+    private final Map<Path, RootState> roots = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, RootState> eldest) {
+            return size() > Constants.SERVE_CACHED_ROOTS;
+        }
+    };
+
+    private final byte[] token;
+
+    private DumpServer(String token) {
+        this.token = token.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static void serve(Config config) throws IOException {
+        String token = newToken();
+        DumpServer dumpServer = new DumpServer(token);
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getServePort()), 0);
+        server.createContext("/dump", dumpServer::handle);
+        server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+        server.start();
+        ConsolePrinter.printServing(config.getServePort(), token);
+    }
+
+    // A new token for every start, an old client configuration stops working with the server
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Headers headers = exchange.getRequestHeaders();
+            // Sent by browsers only, a web page must not run dumps
+            if (headers.containsKey("Origin")) {
+                respond(exchange, 403, "Requests from browsers are not accepted" + System.lineSeparator());
+                return;
+            }
+            if (!isAuthorized(headers.getFirst("Authorization"))) {
+                respond(exchange, 401, "Missing or wrong token, see the output of --serve" + System.lineSeparator());
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Use POST with the arguments in the body" + System.lineSeparator());
+                return;
+            }
+            String cwd = headers.getFirst(CWD_HEADER);
+            if (cwd == null || !Paths.get(cwd).isAbsolute()) {
+                respond(exchange, 400, "Error: " + CWD_HEADER + " must be the absolute working directory"
+                        + System.lineSeparator());
+                return;
+            }
+
+            String[] args = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)
+                    .lines()
+                    .filter(line -> !line.isBlank())
+                    .toArray(String[]::new);
+            log.debug("Dump request: {} in {}", String.join(" ", args), cwd);
+
+            try {
+                String report = dump(args, Paths.get(cwd), exchange);
+                if (report != null) {
+                    respond(exchange, 200, report);
+                }
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "Error: " + e.getMessage() + System.lineSeparator());
+            } catch (Exception e) {
+                log.debug("Dump failed: ", e);
+                if (exchange.getResponseCode() != -1) {
+                    // A streamed dump has already started, the client sees a cut response
+                    return;
+                }
+                respond(exchange, 500, "Error: " + (e.getMessage() != null ? e.getMessage()
+                        : e.getClass().getSimpleName()) + System.lineSeparator());
+            }
+        }
+    }
+
+    private boolean isAuthorized(String authorization) {
+        if (authorization == null || !authorization.startsWith(AUTH_PREFIX)) {
+            return false;
+        }
+        byte[] given = authorization.substring(AUTH_PREFIX.length()).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(given, token);
+    }
+
+    // The report of the dump, null if the dump was streamed as the response
+    private String dump(String[] args, Path cwd, HttpExchange exchange) throws IOException {
+        Config config = ArgumentParser.parse(args);
+        if (config.getRunMode() == RunMode.SHOW_HELP) {
+            return Constants.HELP_STRING;
+        }
+        if (config.getRunMode() != RunMode.DUMP) {
+            throw new IllegalArgumentException("Only dumps can be run on the dump server");
+        }
+        resolvePaths(config, cwd);
+        config.validateConfig();
+        // The warm state of a root is kept by file paths, an archive is mounted anew for every dump
+        if (config.isArchiveRoot()) {
+            throw new IllegalArgumentException("--path cannot be an archive on the dump server");
+        }
+
+        RootState state = rootState(config.getRootPath());
+        DumpStats stats;
+        // Dumps of the same root are not run concurrently, they would write the same files
+        synchronized (state) {
+            IgnoreMatcher ignoreMatcher = state.ignoreMatcher(config.isGitignoreApplied());
+            if (config.isStdoutOutput()) {
+                exchange.getResponseHeaders().set("Content-Type", contentType(config));
+                exchange.sendResponseHeaders(200, 0);
+                stats = FileDumper.dump(config, ignoreMatcher, state, exchange.getResponseBody());
+            } else {
+                stats = FileDumper.dump(config, ignoreMatcher, state);
+            }
+            if (config.getMetricsPath() != null) {
+                Files.writeString(config.getMetricsPath(), stats.toJson());
+            }
+        }
+        return config.isStdoutOutput() ? null : ConsolePrinter.successMessage(config, stats) + System.lineSeparator();
+    }
+
+    private synchronized RootState rootState(Path rootPath) {
+        return roots.computeIfAbsent(rootPath.toAbsolutePath().normalize(), RootState::new);
+    }
+
+    private static void resolvePaths(Config config, Path cwd) {
+        config.setRootPath(cwd.resolve(config.getRootPath()).normalize());
+        if (!config.isStdoutOutput()) {
+            config.setOutputPath(cwd.resolve(config.getOutputPath()).normalize());
+        }
+        if (config.getMetricsPath() != null) {
+            config.setMetricsPath(cwd.resolve(config.getMetricsPath()).normalize());
+        }
+    }
+
+    private static String contentType(Config config) {
+        if (config.getCompression() != Compression.NONE || config.getFormat() == DumpFormat.LENGTH_PREFIXED) {
+            return "application/octet-stream";
+        }
+        return config.getFormat() == DumpFormat.JSONL ? "application/jsonl; charset=utf-8" : "text/plain; charset=utf-8";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
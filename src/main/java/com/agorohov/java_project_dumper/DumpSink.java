@@ -0,0 +1,41 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Receiver of the file blocks of an in-process dump, see ProjectDumper.
+// Called on the thread that runs the dump, one file at a time, in the order of the dump file.
+public interface DumpSink {
+
+    // content - body of the block in UTF-8, the same as between the markers of the text format:
+    // the text with a truncation marker, or the marker of a binary or unreadable file.
+    // The buffer is read-only and is not reused, it may be kept after the call.
+    void accept(String path, BlockKind kind, ByteBuffer content) throws IOException;
+
+    // A copy of a file dumped earlier (unless dedup is off). By default it is passed to accept()
+    // as a DUPLICATE block with the path of the first copy as content, like in the length-prefixed format.
+    default void duplicate(String path, String originalPath) throws IOException {
+        accept(path, BlockKind.DUPLICATE,
+                ByteBuffer.wrap(originalPath.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+    }
+
+    // Called once after the last block
+    default void finish(DumpStats stats) throws IOException {
+    }
+
+    // Sink of content streams, for consumers that read with an InputStream
+    static DumpSink ofStreams(StreamConsumer consumer) {
+        return (path, kind, content) -> {
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            consumer.accept(path, kind, new ByteArrayInputStream(bytes));
+        };
+    }
+
+    interface StreamConsumer {
+        void accept(String path, BlockKind kind, InputStream content) throws IOException;
+    }
+}
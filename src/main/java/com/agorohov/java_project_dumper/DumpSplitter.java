@@ -0,0 +1,282 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+// Cuts a complete dump into parts of limited size. A file block is never split between parts,
+// a block larger than the limit gets a part of its own. Blocks are copied from the complete dump
+// with transferTo, all parts are written in parallel. Every part is read on its own, so a SAME AS
+// reference never leads to another part: the first copy in a part gets the content again.
+public final class DumpSplitter {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpSplitter.class);
+
+    // A block of a part: head, then a range of the complete dump, then tail.
+    // block - path, kind and hash of the block and its length in the part, offset is set when written.
+    private record PartBlock(BlockIndex.Block block, String head, long offset, long length, String tail) {
+
+        static PartBlock copy(BlockIndex.Block block) {
+            return new PartBlock(block, "", block.offset(), block.length(), "");
+        }
+    }
+
+    private DumpSplitter() {}
+
+    public static void split(Config config, Path dumpPath, BlockIndex index, String timestamp) throws IOException {
+        Path outputPath = config.getOutputPath();
+        try (FileChannel dump = FileChannel.open(dumpPath, StandardOpenOption.READ)) {
+            List<List<PartBlock>> parts = assign(dump, index.getBlocks(), config.getSplitSizeBytes(),
+                    config.isIndexed());
+            log.debug("Splitting dump into {} parts", parts.size());
+
+            int threads = Math.min(parts.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < parts.size(); i++) {
+                    int number = i + 1;
+                    List<PartBlock> part = parts.get(i);
+                    futures.add(executor.submit(() -> {
+                        writePart(config, dump, part, partPath(outputPath, number),
+                                timestamp + " (part " + number + " of " + parts.size() + ")");
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    await(future);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            writeManifest(outputPath, parts);
+        }
+    }
+
+    // projectdump.txt -> projectdump-001.txt
+    public static Path partPath(Path outputPath, int number) {
+        String name = outputPath.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        String partName = dot < 0
+                ? name + "-%03d".formatted(number)
+                : name.substring(0, dot) + "-%03d".formatted(number) + name.substring(dot);
+        return outputPath.resolveSibling(partName);
+    }
+
+    // projectdump.txt -> projectdump-manifest.txt
+    public static Path manifestPath(Path outputPath) {
+        String name = outputPath.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        return outputPath.resolveSibling(baseName + Constants.MANIFEST_SUFFIX);
+    }
+
+    // Parts and the manifest of a previous run are never dumped
+    public static boolean isPartFile(Path normalizedOutput, Path normalizedFile) {
+        if (!normalizedOutput.getParent().equals(normalizedFile.getParent())) {
+            return false;
+        }
+        String name = normalizedOutput.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        String extension = dot < 0 ? "" : name.substring(dot);
+        String fileName = normalizedFile.getFileName().toString();
+        return Pattern.matches(Pattern.quote(baseName) + "-\\d{3,}" + Pattern.quote(extension), fileName)
+                || fileName.equals(baseName + Constants.MANIFEST_SUFFIX);
+    }
+
+    // Greedy: blocks keep the dump order, a new part starts when the next block does not fit.
+    // With --index every block also takes its line in the index of the part; offsets in a part
+    // are below the limit, so a line is counted with an offset of as many digits as the limit.
+    private static List<List<PartBlock>> assign(FileChannel dump, List<BlockIndex.Block> blocks, long limit,
+                                                boolean indexed) throws IOException {
+        long reserved = Constants.SPLIT_RESERVED_BYTES + (indexed ? DumpIndex.FRAME_SIZE : 0);
+        long budget = Math.max(limit - reserved, 1);
+        Map<String, BlockIndex.Block> byPath = new HashMap<>();
+        for (BlockIndex.Block block : blocks) {
+            byPath.put(block.path(), block);
+        }
+        List<List<PartBlock>> parts = new ArrayList<>();
+        List<PartBlock> part = new ArrayList<>();
+        Map<String, String> firstCopies = new HashMap<>();
+        long partSize = 0;
+
+        for (BlockIndex.Block block : blocks) {
+            String original = block.kind() == BlockKind.DUPLICATE ? originalPath(dump, block) : null;
+            PartBlock partBlock = resolve(block, original, byPath, firstCopies);
+            long size = partBlock.block().length() + (indexed ? DumpIndex.lineLength(partBlock.block(), limit) : 0);
+            if (!part.isEmpty() && partSize + size > budget) {
+                parts.add(part);
+                part = new ArrayList<>();
+                firstCopies.clear();
+                partSize = 0;
+                partBlock = resolve(block, original, byPath, firstCopies);
+                size = partBlock.block().length() + (indexed ? DumpIndex.lineLength(partBlock.block(), limit) : 0);
+            }
+            part.add(partBlock);
+            partSize += size;
+            if (original == null) {
+                firstCopies.put(block.path(), block.path());
+            } else {
+                firstCopies.putIfAbsent(original, block.path());
+            }
+        }
+        if (!part.isEmpty() || parts.isEmpty()) {
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    // firstCopies - path of the first block in the current part with the content of an original
+    private static PartBlock resolve(BlockIndex.Block block, String original, Map<String, BlockIndex.Block> byPath,
+                                     Map<String, String> firstCopies) {
+        if (original == null) {
+            return PartBlock.copy(block);
+        }
+        String firstCopy = firstCopies.get(original);
+        if (original.equals(firstCopy)) {
+            return PartBlock.copy(block);
+        }
+        if (firstCopy != null) {
+            String reference = TextFormatter.blockStart(block.path()) + TextFormatter.sameAs(firstCopy)
+                    + TextFormatter.BLOCK_END;
+            return new PartBlock(new BlockIndex.Block(block.path(), BlockKind.DUPLICATE, block.hash(), 0,
+                    byteLength(reference)), reference, 0, 0, "");
+        }
+
+        // The original is in another part, its body is copied under the path of this block
+        BlockIndex.Block source = byPath.get(original);
+        String head = TextFormatter.blockStart(block.path());
+        long sourceHead = byteLength(TextFormatter.blockStart(original));
+        long bodyLength = source.length() - sourceHead - byteLength(TextFormatter.BLOCK_END);
+        return new PartBlock(new BlockIndex.Block(block.path(), source.kind(), source.hash(), 0,
+                byteLength(head) + bodyLength + byteLength(TextFormatter.BLOCK_END)),
+                head, source.offset() + sourceHead, bodyLength, TextFormatter.BLOCK_END);
+    }
+
+    // <<<FILE: path>>> <<<SAME AS: original>>> <<<END FILE>>>
+    private static String originalPath(FileChannel dump, BlockIndex.Block block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) block.length());
+        while (buffer.hasRemaining()) {
+            if (dump.read(buffer, block.offset() + buffer.position()) < 0) {
+                throw new EOFException("Dump ends inside the block of " + block.path());
+            }
+        }
+        String text = new String(buffer.array(), StandardCharsets.UTF_8);
+        String prefix = TextFormatter.blockStart(block.path()) + "<<<SAME AS: ";
+        String suffix = ">>>" + System.lineSeparator() + TextFormatter.BLOCK_END;
+        if (!text.startsWith(prefix) || !text.endsWith(suffix)) {
+            throw new IOException("Not a SAME AS block: " + block.path());
+        }
+        return text.substring(prefix.length(), text.length() - suffix.length());
+    }
+
+    private static void writePart(Config config, FileChannel dump, List<PartBlock> blocks, Path partPath,
+                                  String title) throws IOException {
+        DumpStats stats = new DumpStats(config);
+        for (PartBlock block : blocks) {
+            stats.incTotalFiles();
+            stats.countBlock(block.block().kind());
+        }
+
+        List<BlockIndex.Block> index = new ArrayList<>(blocks.size());
+        try (DumpWriter writer = DumpWriter.open(partPath, config.getCompression())) {
+            FileDumper.writeHeader(writer, title);
+            // Adjacent ranges of the complete dump are copied with one transfer
+            long rangeStart = 0;
+            long rangeLength = 0;
+            for (PartBlock block : blocks) {
+                long offset = writer.position() + rangeLength;
+                if (!block.head().isEmpty()) {
+                    transfer(writer, dump, rangeStart, rangeLength);
+                    rangeLength = 0;
+                    writer.write(block.head());
+                }
+                if (block.length() > 0) {
+                    if (rangeLength > 0 && rangeStart + rangeLength != block.offset()) {
+                        transfer(writer, dump, rangeStart, rangeLength);
+                        rangeLength = 0;
+                    }
+                    if (rangeLength == 0) {
+                        rangeStart = block.offset();
+                    }
+                    rangeLength += block.length();
+                }
+                if (!block.tail().isEmpty()) {
+                    transfer(writer, dump, rangeStart, rangeLength);
+                    rangeLength = 0;
+                    writer.write(block.tail());
+                }
+                BlockIndex.Block indexed = block.block();
+                index.add(new BlockIndex.Block(indexed.path(), indexed.kind(), indexed.hash(), offset,
+                        indexed.length()));
+            }
+            transfer(writer, dump, rangeStart, rangeLength);
+            FileDumper.writeFooter(writer, stats);
+            if (config.isIndexed()) {
+                DumpIndex.write(writer, index, 0);
+            }
+        }
+        log.debug("Written {} blocks to {}", blocks.size(), partPath);
+    }
+
+    private static void transfer(DumpWriter writer, FileChannel dump, long offset, long length) throws IOException {
+        if (length > 0) {
+            writer.transferFrom(dump, offset, length);
+        }
+    }
+
+    private static long byteLength(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeManifest(Path outputPath, List<List<PartBlock>> parts) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestPath(outputPath), StandardCharsets.UTF_8)) {
+            writer.write("# part\tfile\tbytes\n");
+            for (int i = 0; i < parts.size(); i++) {
+                String partName = partPath(outputPath, i + 1).getFileName().toString();
+                for (PartBlock block : parts.get(i)) {
+                    writer.write(partName + "\t" + block.block().path() + "\t" + block.block().length() + "\n");
+                }
+            }
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing dump parts");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
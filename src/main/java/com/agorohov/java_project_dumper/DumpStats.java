@@ -1,45 +1,241 @@
 package com.agorohov.java_project_dumper;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class DumpStats {
-    private int totalFiles = 0;
-    private int textFiles = 0;
-    private int binarySkipped = 0;
-    private int skippedDirs = 0;
-    private int ignoredTextFiles = 0;
-    private int truncatedBySize = 0;
-    private int truncatedByLines = 0;
+    private final AtomicInteger totalFiles = new AtomicInteger();
+    private final AtomicInteger textFiles = new AtomicInteger();
+    private final AtomicInteger binarySkipped = new AtomicInteger();
+    private final AtomicInteger skippedDirs = new AtomicInteger();
+    private final AtomicInteger ignoredTextFiles = new AtomicInteger();
+    private final AtomicInteger truncatedBySize = new AtomicInteger();
+    private final AtomicInteger truncatedByLines = new AtomicInteger();
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicLong dedupSavedBytes = new AtomicLong();
+    private final AtomicInteger compactedFiles = new AtomicInteger();
+    private final AtomicLong compactSavedBytes = new AtomicLong();
+    private final AtomicInteger reusedBlocks = new AtomicInteger();
+    private final AtomicInteger renderedBlocks = new AtomicInteger();
+    private final AtomicInteger notIncluded = new AtomicInteger();
+    private final AtomicInteger sniffedFiles = new AtomicInteger();
+    private final AtomicInteger textByExtension = new AtomicInteger();
+    private final AtomicInteger binaryByExtension = new AtomicInteger();
+    private final DumpMetrics metrics = new DumpMetrics();
+    // The footer shows the counters of the features turned on, like the baseline footer without them
+    private final boolean sampleMode;
+    private final boolean deduplicated;
+    private final boolean compacting;
+    private final boolean incremental;
+    private final boolean included;
+    private final boolean extensionLists;
+
+    public DumpStats(Config config) {
+        this.sampleMode = config.isSampleMode();
+        this.deduplicated = config.isDeduplicated();
+        this.compacting = config.isCompacting();
+        this.incremental = config.isIncremental();
+        this.included = !config.getIncludeGlobs().isEmpty();
+        this.extensionLists = !config.getTextExtensions().isEmpty() || !config.getBinaryExtensions().isEmpty();
+    }
+
+    public DumpMetrics getMetrics() {
+        return metrics;
+    }
 
     public void incTotalFiles() {
-        totalFiles++;
+        totalFiles.incrementAndGet();
     }
 
     public void incTextFiles() {
-        textFiles++;
+        textFiles.incrementAndGet();
     }
 
     public void incIgnoredTextFiles() {
-        ignoredTextFiles++;
+        ignoredTextFiles.incrementAndGet();
     }
 
     public void incBinarySkipped() {
-        binarySkipped++;
+        binarySkipped.incrementAndGet();
     }
 
     public void incSkippedDirs() {
-        skippedDirs++;
+        skippedDirs.incrementAndGet();
     }
 
     public void incTruncatedBySize() {
-        truncatedBySize++;
+        truncatedBySize.incrementAndGet();
     }
 
     public void incTruncatedByLines() {
-        truncatedByLines++;
+        truncatedByLines.incrementAndGet();
+    }
+
+    public void incSampled() {
+        sampled.incrementAndGet();
+    }
+
+    public void incDuplicates() {
+        duplicates.incrementAndGet();
+    }
+
+    public void addDedupSavedBytes(long bytes) {
+        dedupSavedBytes.addAndGet(bytes);
+    }
+
+    public int getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getDedupSavedBytes() {
+        return dedupSavedBytes.get();
+    }
+
+    public void addCompacted(long savedBytes) {
+        compactedFiles.incrementAndGet();
+        compactSavedBytes.addAndGet(savedBytes);
+    }
+
+    public int getCompactedFiles() {
+        return compactedFiles.get();
+    }
+
+    public long getCompactSavedBytes() {
+        return compactSavedBytes.get();
+    }
+
+    public void incReusedBlocks() {
+        reusedBlocks.incrementAndGet();
+    }
+
+    public void incRenderedBlocks() {
+        renderedBlocks.incrementAndGet();
+    }
+
+    public void incNotIncluded() {
+        notIncluded.incrementAndGet();
+    }
+
+    public void incSniffedFiles() {
+        sniffedFiles.incrementAndGet();
+    }
+
+    public void incTextByExtension() {
+        textByExtension.incrementAndGet();
+    }
+
+    public void incBinaryByExtension() {
+        binaryByExtension.incrementAndGet();
+    }
+
+    public int getReusedBlocks() {
+        return reusedBlocks.get();
+    }
+
+    public int getRenderedBlocks() {
+        return renderedBlocks.get();
+    }
+
+    public void countBlock(BlockKind kind) {
+        switch (kind) {
+            case TEXT -> incTextFiles();
+            case TRUNCATED_BY_SIZE -> {
+                incTextFiles();
+                incTruncatedBySize();
+            }
+            case TRUNCATED_BY_LINES -> {
+                incTextFiles();
+                incTruncatedByLines();
+            }
+            case SAMPLED -> {
+                incTextFiles();
+                incSampled();
+            }
+            case DUPLICATE -> {
+                incTextFiles();
+                incDuplicates();
+            }
+            case BINARY -> incBinarySkipped();
+            case UNREADABLE -> {
+                // nothing dumped
+            }
+        }
+    }
+
+    // Totals of a batch of dumps
+    public void addAll(DumpStats other) {
+        totalFiles.addAndGet(other.totalFiles.get());
+        textFiles.addAndGet(other.textFiles.get());
+        binarySkipped.addAndGet(other.binarySkipped.get());
+        skippedDirs.addAndGet(other.skippedDirs.get());
+        ignoredTextFiles.addAndGet(other.ignoredTextFiles.get());
+        truncatedBySize.addAndGet(other.truncatedBySize.get());
+        truncatedByLines.addAndGet(other.truncatedByLines.get());
+        sampled.addAndGet(other.sampled.get());
+        duplicates.addAndGet(other.duplicates.get());
+        dedupSavedBytes.addAndGet(other.dedupSavedBytes.get());
+        compactedFiles.addAndGet(other.compactedFiles.get());
+        compactSavedBytes.addAndGet(other.compactSavedBytes.get());
+        reusedBlocks.addAndGet(other.reusedBlocks.get());
+        renderedBlocks.addAndGet(other.renderedBlocks.get());
+        notIncluded.addAndGet(other.notIncluded.get());
+        sniffedFiles.addAndGet(other.sniffedFiles.get());
+        textByExtension.addAndGet(other.textByExtension.get());
+        binaryByExtension.addAndGet(other.binaryByExtension.get());
+        metrics.addAll(other.metrics);
+    }
+
+    // Counters and metrics for --metrics
+    public String toJson() {
+        return """
+                {
+                  "totalFiles": %d,
+                  "textFiles": %d,
+                  "binarySkipped": %d,
+                  "skippedDirs": %d,
+                  "ignoredTextFiles": %d,
+                  "truncatedBySize": %d,
+                  "truncatedByLines": %d,
+                  "sampled": %d,
+                  "duplicates": %d,
+                  "dedupSavedBytes": %d,
+                  "compactedFiles": %d,
+                  "compactSavedBytes": %d,
+                  "reusedBlocks": %d,
+                  "renderedBlocks": %d,
+                  "notIncluded": %d,
+                  "sniffedFiles": %d,
+                  "textByExtension": %d,
+                  "binaryByExtension": %d,
+                %s
+                }
+                """.formatted(
+                totalFiles.get(),
+                textFiles.get(),
+                binarySkipped.get(),
+                skippedDirs.get(),
+                ignoredTextFiles.get(),
+                truncatedBySize.get(),
+                truncatedByLines.get(),
+                sampled.get(),
+                duplicates.get(),
+                dedupSavedBytes.get(),
+                compactedFiles.get(),
+                compactSavedBytes.get(),
+                reusedBlocks.get(),
+                renderedBlocks.get(),
+                notIncluded.get(),
+                sniffedFiles.get(),
+                textByExtension.get(),
+                binaryByExtension.get(),
+                metrics.toJson()
+        );
     }
 
     @Override
     public String toString() {
-        return """
+        StringBuilder text = new StringBuilder("""
                 Dump statistics:
                   Total files considered:   %d
                   Text files dumped:        %d
@@ -49,13 +245,41 @@ public class DumpStats {
                   Truncated by size limit:  %d
                   Truncated by line limit:  %d
                 """.formatted(
-                totalFiles,
-                textFiles,
-                binarySkipped,
-                skippedDirs,
-                ignoredTextFiles,
-                truncatedBySize,
-                truncatedByLines
-        );
+                totalFiles.get(),
+                textFiles.get(),
+                binarySkipped.get(),
+                skippedDirs.get(),
+                ignoredTextFiles.get(),
+                truncatedBySize.get(),
+                truncatedByLines.get()
+        ));
+        if (sampleMode) {
+            appendLine(text, "Sampled (head and tail):", sampled.get());
+        }
+        if (deduplicated) {
+            appendLine(text, "Duplicates (same as):", duplicates.get());
+            appendLine(text, "Bytes saved by dedup:", dedupSavedBytes.get());
+        }
+        if (compacting) {
+            appendLine(text, "Compacted files:", compactedFiles.get());
+            appendLine(text, "Bytes saved by compact:", compactSavedBytes.get());
+        }
+        if (incremental) {
+            appendLine(text, "Reused from last dump:", reusedBlocks.get());
+            appendLine(text, "Rendered (incremental):", renderedBlocks.get());
+        }
+        if (included) {
+            appendLine(text, "Not in --include:", notIncluded.get());
+        }
+        if (extensionLists) {
+            appendLine(text, "Sniffed text or binary:", sniffedFiles.get());
+            appendLine(text, "Text by extension:", textByExtension.get());
+            appendLine(text, "Binary by extension:", binaryByExtension.get());
+        }
+        return text.toString();
+    }
+
+    private static void appendLine(StringBuilder text, String label, long value) {
+        text.append("  %-26s%d\n".formatted(label, value));
     }
 }
@@ -0,0 +1,246 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Watch mode: keeps the dump up to date after the initial run. Events are coalesced until the tree is quiet
+// for a moment, then the dump is rebuilt incrementally: blocks of unchanged files are copied from the
+// previous dump, only changed files are read, and the new dump replaces the old one with a rename.
+public final class DumpWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpWatcher.class);
+
+    private final Config config;
+    private final Path rootPath;
+    private final Path normalizedOutput;
+    private final Path normalizedMetrics;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private IgnoreMatcher ignoreMatcher;
+
+    private DumpWatcher(Config config, WatchService watchService) {
+        this.config = config;
+        this.rootPath = config.getRootPath().toAbsolutePath().normalize();
+        this.normalizedOutput = config.getOutputPath().toAbsolutePath().normalize();
+        this.normalizedMetrics = config.getMetricsPath() != null
+                ? config.getMetricsPath().toAbsolutePath().normalize()
+                : null;
+        this.watchService = watchService;
+    }
+
+    public static void watch(Config config) throws IOException {
+        // Every rebuild after the first one reuses the blocks of the previous dump
+        config.setIncremental(true);
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            DumpWatcher watcher = new DumpWatcher(config, watchService);
+            watcher.reloadIgnoreRules();
+            ConsolePrinter.printSuccess(config, watcher.dump());
+            watcher.registerTree(watcher.rootPath);
+            ConsolePrinter.printWatching(config, watcher.watchedDirs.size());
+            watcher.loop();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Watch service closed");
+        }
+    }
+
+    private void loop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Set<Path> changed = new LinkedHashSet<>();
+            try {
+                WatchKey key = watchService.take();
+                boolean overflow = collect(key, changed);
+                // Coalescing: events keep coming while a file is saved or a branch is switched
+                while ((key = watchService.poll(Constants.WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+                if (overflow) {
+                    log.debug("Watch events overflow, rebuilding the dump");
+                    changed.add(rootPath);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (!changed.isEmpty()) {
+                update(changed);
+            }
+        }
+    }
+
+    // Collects the changed paths of one key, true if events were lost
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        Path dir = watchedDirs.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context()).toAbsolutePath().normalize();
+            if (!isOwnFile(path)) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);        // directory was deleted
+        }
+        return overflow;
+    }
+
+    // A failed rebuild keeps the previous dump and the watch goes on: files changed under the walk bring
+    // their own events, and the next change rebuilds the dump again
+    private void update(Set<Path> changed) {
+        try {
+            if (isRelevant(changed)) {
+                DumpStats stats = dump();
+                ConsolePrinter.printUpdated(config, changed.size(), stats);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Cannot update the dump, keeping the previous one: {}", e.getMessage());
+        }
+    }
+
+    private boolean isRelevant(Set<Path> changed) throws IOException {
+        boolean ignoreFilesChanged = changed.stream().anyMatch(DumpWatcher::isIgnoreFile);
+        if (ignoreFilesChanged) {
+            log.debug("Ignore files changed, reloading rules");
+            reloadIgnoreRules();
+        }
+
+        boolean relevant = ignoreFilesChanged;
+        for (Path path : changed) {
+            if (Files.isDirectory(path)) {
+                registerTree(path);             // new or moved directory
+                relevant = true;
+            } else if (!isIgnored(path)) {
+                relevant = true;
+            }
+        }
+        if (ignoreFilesChanged) {
+            registerTree(rootPath);             // directories may be no longer ignored
+        }
+        if (!relevant) {
+            log.debug("Only ignored files changed: {}", changed);
+        }
+        return relevant;
+    }
+
+    private DumpStats dump() throws IOException {
+        DumpStats stats = FileDumper.dump(config, ignoreMatcher);
+        if (config.getMetricsPath() != null) {
+            Files.writeString(config.getMetricsPath(), stats.toJson());
+        }
+        return stats;
+    }
+
+    private void reloadIgnoreRules() throws IOException {
+        ignoreMatcher = IgnoreLoader.loadIgnoreMatcher(config.getRootPath(), config.isUseGitignore());
+    }
+
+    // Registers all not ignored directories of the subtree, directories watched already are kept as is
+    private void registerTree(Path start) throws IOException {
+        Path startDir = start.toAbsolutePath().normalize();
+        if (!startDir.startsWith(rootPath) || !Files.isDirectory(startDir)) {
+            return;
+        }
+        Files.walkFileTree(startDir, new SimpleFileVisitor<Path>() {
+            private final Deque<IgnoreMatcher> matchers = new ArrayDeque<>();
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                String pathStr = toUnixPath(dir);
+                IgnoreMatcher matcher = matchers.isEmpty() ? matcherFor(dir) : matchers.peek();
+                if (matcher == null || (!pathStr.isEmpty() && matcher.isIgnored(pathStr, true))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+                matchers.push(pathStr.isEmpty() ? matcher : matcher.forDirectory(dir, pathStr));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                matchers.pop();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                log.debug("Cannot watch {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Matcher of the parent directory, null if the directory is in an ignored subtree
+    private IgnoreMatcher matcherFor(Path dir) {
+        IgnoreMatcher matcher = ignoreMatcher;
+        Path relative = rootPath.relativize(dir);
+        Path current = rootPath;
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            current = current.resolve(relative.getName(i));
+            String pathStr = toUnixPath(current);
+            if (matcher.isIgnored(pathStr, true)) {
+                return null;
+            }
+            matcher = matcher.forDirectory(current, pathStr);
+        }
+        return matcher;
+    }
+
+    private boolean isIgnored(Path file) {
+        if (!file.startsWith(rootPath) || file.equals(rootPath)) {
+            return true;
+        }
+        IgnoreMatcher matcher = matcherFor(file);
+        return matcher == null || matcher.isIgnored(toUnixPath(file), false);
+    }
+
+    // Changes made by the dumper itself must not trigger a new dump
+    private boolean isOwnFile(Path path) {
+        return path.equals(normalizedOutput)
+                || path.equals(normalizedMetrics)
+                || DumpCache.isCacheFile(normalizedOutput, path)
+                || DumpSplitter.isPartFile(normalizedOutput, path);
+    }
+
+    private static boolean isIgnoreFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.equals(Constants.GITIGNORE_FILENAME) || name.equals(Constants.IGNORE_FILENAME);
+    }
+
+    private String toUnixPath(Path path) {
+        return rootPath.relativize(path).toString().replace("\\", "/");
+    }
+}
@@ -0,0 +1,171 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class DumpWriter implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean output;       // writes to the dump itself, not to an in-memory block
+    private long position = 0;
+    private long writeNanos = 0;
+
+    public DumpWriter(WritableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, false);
+    }
+
+    private DumpWriter(WritableByteChannel channel, int bufferSize, boolean output) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.output = output;
+    }
+
+    public static DumpWriter open(Path path, Compression compression) throws IOException {
+        WritableByteChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        return withCompression(channel, compression);
+    }
+
+    // Writes block when the reader of stdout is slower, so the bounded window of OrderedBlockWriter
+    // stops the workers too. Closing the writer closes stdout and the reader sees the end of the dump.
+    public static DumpWriter openStdout(Compression compression) {
+        return withCompression(new FileOutputStream(FileDescriptor.out).getChannel(), compression);
+    }
+
+    // --output=- of a dump server request: the dump is the response body, closing the writer ends it
+    public static DumpWriter openStream(OutputStream out, Compression compression) {
+        return withCompression(Channels.newChannel(out), compression);
+    }
+
+    private static DumpWriter withCompression(WritableByteChannel channel, Compression compression) {
+        if (compression == Compression.GZIP) {
+            channel = new ParallelGzipChannel(channel, Runtime.getRuntime().availableProcessors());
+        }
+        return new DumpWriter(channel, Constants.WRITE_BUFFER_SIZE, true);
+    }
+
+    public void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        position += length;
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        if (length >= buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes, offset, length));
+        } else {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    // Copies a range of the source file without passing it through the heap (sendfile where available),
+    // other channels are copied through the write buffer
+    public void transferFrom(SeekableByteChannel source, long position, long count) throws IOException {
+        flush();
+        if (!(source instanceof FileChannel fileChannel)) {
+            copyFrom(source, position, count);
+            return;
+        }
+        DumpEvents.OutputFlush event = DumpEvents.isRecording() ? new DumpEvents.OutputFlush() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long end = position + count;
+        long start = System.nanoTime();
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, end - position, channel);
+            if (transferred <= 0) {
+                break;      // source file was truncated while being read
+            }
+            position += transferred;
+            this.position += transferred;
+        }
+        writeNanos += System.nanoTime() - start;
+        commitFlushEvent(event, count, true);
+    }
+
+    private void copyFrom(SeekableByteChannel source, long position, long count) throws IOException {
+        source.position(position);
+        long remaining = count;
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            int read = source.read(buffer);
+            if (read <= 0) {
+                break;      // source is shorter than expected
+            }
+            buffer.flip();
+            writeFully(buffer);
+            remaining -= read;
+            this.position += read;
+        }
+        buffer.clear();
+    }
+
+    // Number of bytes written so far
+    public long position() {
+        return position;
+    }
+
+    // Time spent in writes to the channel, buffering is not counted
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        DumpEvents.OutputFlush event = DumpEvents.isRecording() ? new DumpEvents.OutputFlush() : null;
+        if (event != null) {
+            event.begin();
+        }
+        int length = bytes.remaining();
+        long start = System.nanoTime();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        writeNanos += System.nanoTime() - start;
+        commitFlushEvent(event, length, false);
+    }
+
+    private void commitFlushEvent(DumpEvents.OutputFlush event, long bytes, boolean transfer) {
+        if (output && bytes > 0 && event != null && event.shouldCommit()) {
+            event.bytes = bytes;
+            event.transfer = transfer;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Decisions made before a file is opened: the --include allowlist, and text or binary by the extension.
+// --text-ext and --binary-ext come first, then the built-in table, then the extensions learned in this run:
+// if the first EXTENSION_LEARN_SAMPLES files of an unknown extension in walk order all got the same verdict,
+// the rest of its files are classified without sniffing. Later files wait for the samples instead of taking
+// whatever the workers have learned so far, so the dump does not depend on which worker was faster.
+// decide() is called by the walker in walk order, the decisions are used on the worker threads.
+public final class FileClassifier {
+
+    public enum Verdict {
+        TEXT,
+        BINARY,
+        SNIFF
+    }
+
+    // Verdict of one file. A sample must report what sniffing found, or be released without a verdict.
+    public final class Decision {
+
+        private final Verdict verdict;          // null until the samples of the extension are in
+        private final Samples samples;
+        private final boolean sample;
+        private boolean reported;
+
+        private Decision(Verdict verdict, Samples samples, boolean sample) {
+            this.verdict = verdict;
+            this.samples = samples;
+            this.sample = sample;
+        }
+
+        public Verdict verdict() throws IOException {
+            Verdict result = verdict != null ? verdict : samples.await();
+            switch (result) {
+                case TEXT -> stats.incTextByExtension();
+                case BINARY -> stats.incBinaryByExtension();
+                case SNIFF -> stats.incSniffedFiles();
+            }
+            return result;
+        }
+
+        // Verdict of a sniffed file, teaches the classifier its extension
+        public void learn(boolean text) {
+            if (sample && !reported) {
+                reported = true;
+                samples.add(text);
+            }
+        }
+
+        // A sample that was not sniffed (reused block, read error) keeps the extension sniffed
+        public void release() {
+            if (sample && !reported) {
+                reported = true;
+                samples.skip();
+            }
+        }
+    }
+
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "java", "kt", "kts", "groovy", "gradle", "scala", "clj", "xml", "xsd", "xsl", "wsdl", "json", "yml",
+            "yaml", "toml", "properties", "ini", "cfg", "conf", "env", "md", "adoc", "rst", "txt", "csv", "tsv",
+            "html", "htm", "css", "scss", "sass", "less", "js", "mjs", "cjs", "ts", "tsx", "jsx", "vue", "svelte",
+            "sql", "graphql", "proto", "sh", "bash", "zsh", "bat", "cmd", "ps1", "py", "rb", "php", "pl", "go",
+            "rs", "c", "h", "cpp", "hpp", "cc", "cs", "swift", "m", "jsp", "ftl", "vm", "mustache", "hbs", "svg",
+            "tf", "hcl", "dockerfile", "gitignore", "gitattributes", "editorconfig", "tex", "lua", "r", "dart");
+
+    private static final Set<String> BINARY_EXTENSIONS = Set.of(
+            "class", "jar", "war", "ear", "zip", "gz", "tgz", "tar", "bz2", "xz", "zst", "7z", "rar", "png", "jpg",
+            "jpeg", "gif", "bmp", "ico", "webp", "tif", "tiff", "psd", "pdf", "doc", "docx", "xls", "xlsx", "ppt",
+            "pptx", "odt", "ods", "exe", "dll", "so", "dylib", "o", "a", "lib", "obj", "pyc", "wasm", "mp3", "mp4",
+            "avi", "mov", "mkv", "webm", "wav", "ogg", "flac", "ttf", "otf", "woff", "woff2", "eot", "jks",
+            "keystore", "p12", "der", "db", "sqlite", "iso", "dmg", "hprof", "jfr");
+
+    private final Set<String> textExtensions;
+    private final Set<String> binaryExtensions;
+    private final List<PathMatcher> includes;
+    private final DumpStats stats;
+    private final Map<String, Samples> learned = new HashMap<>();
+
+    public FileClassifier(Config config, DumpStats stats) {
+        this.textExtensions = config.getTextExtensions();
+        this.binaryExtensions = config.getBinaryExtensions();
+        this.includes = config.getIncludeGlobs().stream()
+                .map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob))
+                .toList();
+        this.stats = stats;
+    }
+
+    // Files outside the allowlist are not dumped at all, without --include every file is
+    public boolean isIncluded(String path) {
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (PathMatcher include : includes) {
+            if (include.matches(Paths.get(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Walker thread only
+    public Decision decide(String path) {
+        String extension = extension(path);
+        Verdict verdict = byExtension(extension);
+        if (verdict != Verdict.SNIFF || extension.isEmpty()) {
+            return new Decision(verdict, null, false);
+        }
+        Samples samples = learned.computeIfAbsent(extension, key -> new Samples());
+        boolean sample = samples.admitted < Constants.EXTENSION_LEARN_SAMPLES;
+        if (sample) {
+            samples.admitted++;
+        }
+        return new Decision(sample ? Verdict.SNIFF : null, samples, sample);
+    }
+
+    private Verdict byExtension(String extension) {
+        if (extension.isEmpty()) {
+            return Verdict.SNIFF;       // Makefile, LICENSE and executables alike
+        }
+        if (textExtensions.contains(extension)) {
+            return Verdict.TEXT;
+        }
+        if (binaryExtensions.contains(extension)) {
+            return Verdict.BINARY;
+        }
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            return Verdict.TEXT;
+        }
+        if (BINARY_EXTENSIONS.contains(extension)) {
+            return Verdict.BINARY;
+        }
+        return Verdict.SNIFF;
+    }
+
+    // Lower case extension of the file name, the whole name of dotfiles like .gitignore, empty for names without one
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= path.lastIndexOf('/') + 1 ? path.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    // Sniff verdicts of the first files of one extension, a single disagreement keeps it sniffed for the rest of the run
+    private static final class Samples {
+
+        private int admitted;                   // walker thread only
+        private final CountDownLatch pending = new CountDownLatch(Constants.EXTENSION_LEARN_SAMPLES);
+        private final AtomicInteger text = new AtomicInteger();
+        private final AtomicInteger binary = new AtomicInteger();
+
+        void add(boolean isText) {
+            (isText ? text : binary).incrementAndGet();
+            pending.countDown();
+        }
+
+        void skip() {
+            pending.countDown();
+        }
+
+        // The samples were submitted before the waiting file and run on the other workers, they are never queued
+        // behind it
+        Verdict await() throws IOException {
+            try {
+                pending.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for extension samples");
+            }
+            if (text.get() == Constants.EXTENSION_LEARN_SAMPLES) {
+                return Verdict.TEXT;
+            }
+            if (binary.get() == Constants.EXTENSION_LEARN_SAMPLES) {
+                return Verdict.BINARY;
+            }
+            return Verdict.SNIFF;
+        }
+    }
+}
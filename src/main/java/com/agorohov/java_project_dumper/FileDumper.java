@@ -1,182 +1,523 @@
 package com.agorohov.java_project_dumper;
 
-import org.eclipse.jgit.ignore.IgnoreNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
 
 public final class FileDumper {
 
     private static final Logger log = LoggerFactory.getLogger(FileDumper.class);
 
+    private static final String BINARY_SKIPPED = "Binary file: skipped" + System.lineSeparator();
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(Constants.READ_BUFFER_SIZE));
+
     private FileDumper() {}
 
-    public static DumpStats dump(Config config, IgnoreNode ignoreNode) throws IOException {
+    public static DumpStats dump(Config config, IgnoreMatcher ignoreMatcher) throws IOException {
+        return dump(config, ignoreMatcher, null);
+    }
+
+    // entryStore keeps the incremental cache in memory between dumps, may be null
+    public static DumpStats dump(Config config, IgnoreMatcher ignoreMatcher, DumpCache.EntryStore entryStore)
+            throws IOException {
+        return dump(config, ignoreMatcher, entryStore, null);
+    }
+
+    // stdout - where --output=- writes the dump, null for the standard output of the process
+    public static DumpStats dump(Config config, IgnoreMatcher ignoreMatcher, DumpCache.EntryStore entryStore,
+                                 OutputStream stdout) throws IOException {
         Path rootPath = config.getRootPath();
         Path outputPath = config.getOutputPath();
 
         log.debug("Starting project dump: root={}, output={}",
                 rootPath.toAbsolutePath(), outputPath.toAbsolutePath());
 
-        try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            writer.write(Constants.SEPARATOR + System.lineSeparator());
-            writer.write("Java project dump " + timestamp + System.lineSeparator());
-            writer.write(Constants.SEPARATOR + System.lineSeparator() + System.lineSeparator());
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        boolean split = config.getSplitSizeBytes() > 0;
+        DumpCache cache = config.isIncremental() ? DumpCache.load(config, entryStore) : null;
+        DumpStats stats = new DumpStats(config);
+        DumpMetrics metrics = stats.getMetrics();
+        metrics.start();
+        try (cache) {
+            // A split dump is written whole first and then cut into parts
+            Path target = cache != null || split ? DumpCache.tempOutputPath(outputPath) : outputPath;
+            BlockIndex index = split || config.isIndexed() ? new BlockIndex() : null;
+            try {
+                DumpWriter writer;
+                if (config.isStdoutOutput()) {
+                    writer = stdout != null
+                            ? DumpWriter.openStream(stdout, config.getCompression())
+                            : DumpWriter.openStdout(config.getCompression());
+                } else {
+                    writer = DumpWriter.open(target, split ? Compression.NONE : config.getCompression());
+                }
+                try (writer) {
+                    writeDump(config, ignoreMatcher, DumpFormatter.of(config.getFormat()), cache, index, timestamp,
+                            stats, writer);
+                }
+                metrics.addNanos(DumpPhase.WRITE, writer.getWriteNanos());
+                metrics.addOutputBytes(writer.position());
+                if (split) {
+                    DumpSplitter.split(config, target, index, timestamp);
+                }
+            } finally {
+                if (split) {
+                    Files.deleteIfExists(target);
+                }
+            }
+            if (cache != null) {
+                cache.commit();
+            }
+            metrics.stop();
+            return stats;
+        }
+    }
+
+    // In-process dump for ProjectDumper: the formatter gets the blocks, nothing is written to a file
+    public static DumpStats dumpTo(Config config, IgnoreMatcher ignoreMatcher, DumpFormatter formatter)
+            throws IOException {
+        log.debug("Starting in-process dump: root={}", config.getRootPath().toAbsolutePath());
+
+        DumpStats stats = new DumpStats(config);
+        DumpMetrics metrics = stats.getMetrics();
+        metrics.start();
+        try (DumpWriter writer = new DumpWriter(Channels.newChannel(OutputStream.nullOutputStream()),
+                Constants.SAMPLE_SIZE)) {
+            writeDump(config, ignoreMatcher, formatter, null, null, "", stats, writer);
+        }
+        metrics.stop();
+        return stats;
+    }
+
+    private static void writeDump(Config config, IgnoreMatcher ignoreMatcher, DumpFormatter formatter, DumpCache cache,
+                                  BlockIndex index, String timestamp, DumpStats stats, DumpWriter writer)
+            throws IOException {
+        DumpMetrics metrics = stats.getMetrics();
+        FileClassifier classifier = new FileClassifier(config, stats);
+        BlockRecorder recorder = new BlockRecorder(stats, cache, index,
+                config.isDeduplicated() ? new DedupTable() : null, formatter);
+        // Only text blocks are streamed from the files, other formats need the length or escaping of the body first
+        boolean streamed = formatter == TextFormatter.INSTANCE;
+
+        try (FileSource source = openSource(config);
+             OrderedBlockWriter<RenderedBlock> blockWriter = config.getThreads() > 1
+                ? new OrderedBlockWriter<>(block -> writeRendered(block, recorder, writer), config.getThreads())
+                : null) {
+            formatter.writeHeader(writer, timestamp);
+
+            long walkStart = System.nanoTime();
+            LongAdder entryNanos = new LongAdder();
+            source.walk(ignoreMatcher, stats, entry -> {
+                if (!classifier.isIncluded(entry.path())) {
+                    stats.incNotIncluded();
+                    return;
+                }
+                long entryStart = System.nanoTime();
+                FileClassifier.Decision decision = classifier.decide(entry.path());
+                if (blockWriter != null) {
+                    blockWriter.submit(() -> renderBlock(entry, config, decision, cache, stats));
+                } else if (streamed) {
+                    writeEntry(entry, config, decision, recorder, writer);
+                } else {
+                    writeRendered(renderBlock(entry, config, decision, cache, stats), recorder, writer);
+                }
+                entryNanos.add(System.nanoTime() - entryStart);
+            });
+            // Work on found files is not traversal. Ignore checks run on the walker threads and may overlap
+            // each other, so their sum can exceed the wall time and the rest is clamped as a whole.
+            long walkNanos = System.nanoTime() - walkStart;
+            metrics.addNanos(DumpPhase.TRAVERSAL,
+                    Math.max(0, walkNanos - metrics.getNanos(DumpPhase.IGNORE) - entryNanos.sum()));
+
+            if (blockWriter != null) {
+                blockWriter.flush();
+            }
 
-            DumpStats stats = new DumpStats();
+            formatter.writeFooter(writer, stats);
+            // Parts of a split dump get their own index
+            if (index != null && config.getSplitSizeBytes() == 0) {
+                DumpIndex.write(writer, index.getBlocks(), 0);
+            }
+        }
+    }
 
-            Path normalizedOutput = outputPath.toAbsolutePath().normalize();
-            Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    String pathStr = toUnixPath(rootPath, dir);
+    public static void writeHeader(DumpWriter writer, String title) throws IOException {
+        writer.write(Constants.SEPARATOR + System.lineSeparator());
+        writer.write("Java project dump " + title + System.lineSeparator());
+        writer.write(Constants.SEPARATOR + System.lineSeparator() + System.lineSeparator());
+    }
 
-                    if (pathStr.isEmpty()) {
-                        return FileVisitResult.CONTINUE; // root
-                    }
+    public static void writeFooter(DumpWriter writer, DumpStats stats) throws IOException {
+        writer.write(System.lineSeparator());
+        writer.write(Constants.SEPARATOR);
+        writer.write(System.lineSeparator());
+        writer.write(System.lineSeparator());
+        writer.write(stats.toString());
+        writer.write(System.lineSeparator());
+        writer.write(Constants.SEPARATOR);
+        writer.write(System.lineSeparator());
+        writer.write(System.lineSeparator());
+        writer.write("Powered by Java Project Dumper © agorohovcom");
+        writer.write(System.lineSeparator());
+        writer.write(Constants.APP_URL);
+        writer.write(System.lineSeparator());
+    }
 
-                    Boolean ignored = ignoreNode.checkIgnored(pathStr, true);
+    private static FileSource openSource(Config config) throws IOException {
+        if (config.isArchiveRoot()) {
+            return ArchiveSource.open(config);
+        }
+        return switch (config.getSourceType()) {
+            case FILESYSTEM -> new FileTreeSource(config);
+            case GIT_INDEX -> GitSource.index(config);
+            case GIT_REF -> GitSource.ref(config);
+            case GIT_CHANGED -> GitSource.changedSince(config);
+            case GIT_DIFF -> GitSource.diff(config);
+        };
+    }
 
-                    if (Boolean.TRUE.equals(ignored)) {
-                        stats.incSkippedDirs();
-                        log.debug("Skipping directory by ignore rule: {}", pathStr);
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
+    // Body of a block rendered on a worker thread, or a block of the previous dump to reuse
+    private record RenderedBlock(FileEntry entry, byte[] body, BlockResult result, DumpCache.Entry reused) {
+    }
 
-                    return FileVisitResult.CONTINUE;
-                }
+    // Stats, cache, index and dedup bookkeeping of every written block, called on the writing thread only
+    private record BlockRecorder(DumpStats stats, DumpCache cache, BlockIndex index, DedupTable dedup,
+                                 DumpFormatter formatter) {
+
+        void reused(FileEntry entry, DumpCache.Entry reused, DumpWriter writer) throws IOException {
+            long offset = writer.position();
+            // A new file earlier in the dump may have the same content now
+            DedupTable.Original original = findOriginal(entry, reused.kind(), reused.hash());
+            if (original != null) {
+                formatter.writeDuplicate(writer, entry.path(), original.entry().path());
+                rendered(entry, new BlockResult(BlockKind.DUPLICATE, reused.hash()), offset, 0, writer);
+                return;
+            }
 
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    // Excluding output file
-                    Path normalizedFile = file.toAbsolutePath().normalize();
-                    if (normalizedFile.equals(normalizedOutput)) {
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    stats.incTotalFiles();
-                    String pathStr = toUnixPath(rootPath, file);
-
-                    Boolean ignored = ignoreNode.checkIgnored(pathStr, false);
-                    if (Boolean.TRUE.equals(ignored)) {
-                        stats.incIgnoredTextFiles();
-                        log.debug("Ignoring file by rule: {}", pathStr);
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    writer.write("<<<FILE: " + toUnixPath(rootPath, file) + ">>>" + System.lineSeparator());
-
-                    if (isTextFile(file)) {
-                        stats.incTextFiles();
-                        log.debug("Dumping text file: {}", file);
-                        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-                            String line;
-                            long bytesRead = 0;
-                            int lineCount = 0;
-
-                            while ((line = reader.readLine()) != null) {
-                                String lineWithNl = line + System.lineSeparator();
-                                byte[] bytes = lineWithNl.getBytes(StandardCharsets.UTF_8);
-                                bytesRead += bytes.length;
-
-                                writer.write(lineWithNl);
-
-                                lineCount++;
-
-                                if (bytesRead > config.getMaxFileSizeBytes()) {
-                                    writer.write("[Truncated: size limit exceeded]" + System.lineSeparator());
-                                    stats.incTruncatedBySize();
-                                    log.debug("File truncated by size limit: {}", pathStr);
-                                    break;
-                                }
-
-                                if (lineCount >= config.getMaxFileLines()) {
-                                    writer.write("[Truncated: line limit exceeded]" + System.lineSeparator());
-                                    stats.incTruncatedByLines();
-                                    log.debug("File truncated by line limit: {}", pathStr);
-                                    break;
-                                }
-                            }
-                        } catch (IOException e) {
-                            writer.write("[Cannot read file: "
-                                    + e.getClass().getSimpleName() + "]"
-                                    + System.lineSeparator());
-                            log.warn("Cannot read file {}: {}", file, e.getMessage());
-                        }
-                    } else {
-                        writer.write("Binary file: skipped" + System.lineSeparator());
-                        stats.incBinarySkipped();
-                        log.debug("Detected binary file: {}", file);
-                    }
-
-                    writer.write("<<<END FILE>>>" + System.lineSeparator() + System.lineSeparator());
-
-                    return FileVisitResult.CONTINUE;
-                }
+            cache.splice(reused, entry, writer);
+            long length = writer.position() - offset;
+            stats.countBlock(reused.kind());
+            stats.incReusedBlocks();
+            stats.getMetrics().countBlock(0);
+            if (index != null) {
+                index.add(entry.path(), reused.kind(), indexHash(reused.kind(), reused.hash()), offset, length);
+            }
+            addOriginal(entry, reused.kind(), reused.hash(), length - textBlockOverhead(entry));
+            log.debug("Reusing block from previous dump: {}", entry.path());
+        }
 
-                private String toUnixPath(Path root, Path file) {
-                    return root.relativize(file).toString().replace("\\", "/");
-                }
-            });
+        // contentLength - length of the block body, what a reference to this block would replace
+        void rendered(FileEntry entry, BlockResult result, long offset, long contentLength, DumpWriter writer) {
+            long length = writer.position() - offset;
+            stats.countBlock(result.kind());
+            stats.getMetrics().countBlock(entry.size());
+            if (cache != null) {
+                cache.record(entry, result, offset, length);
+                stats.incRenderedBlocks();
+            }
+            if (index != null) {
+                index.add(entry.path(), result.kind(), indexHash(result.kind(), result.hash()), offset, length);
+            }
+            addOriginal(entry, result.kind(), result.hash(), contentLength);
+        }
 
-            writer.write(System.lineSeparator());
-            writer.write(Constants.SEPARATOR);
-            writer.write(System.lineSeparator());
-            writer.write(System.lineSeparator());
-            writer.write(stats.toString());
-            writer.write(System.lineSeparator());
-            writer.write(Constants.SEPARATOR);
-            writer.write(System.lineSeparator());
-            writer.write(System.lineSeparator());
-            writer.write("Powered by Java Project Dumper © agorohovcom");
-            writer.write(System.lineSeparator());
-            writer.write(Constants.APP_URL);
-            writer.write(System.lineSeparator());
+        // Earlier file with the same content, null if there is none or the reference is not shorter than the content.
+        // The caller writes the reference, the saved bytes are counted here.
+        DedupTable.Original findOriginal(FileEntry entry, BlockKind kind, long hash) {
+            if (dedup == null || !isDedupKind(kind) || hash == DumpCache.NO_HASH) {
+                return null;
+            }
+            DedupTable.Original original = dedup.find(entry, hash);
+            if (original == null) {
+                return null;
+            }
+            long saved = original.contentLength() - byteLength(TextFormatter.sameAs(original.entry().path()));
+            if (saved <= 0) {
+                return null;
+            }
+            stats.addDedupSavedBytes(saved);
+            log.debug("Duplicate of {}: {}", original.entry().path(), entry.path());
+            return original;
+        }
 
-            return stats;
+        private void addOriginal(FileEntry entry, BlockKind kind, long hash, long contentLength) {
+            if (dedup != null && isDedupKind(kind) && hash != DumpCache.NO_HASH) {
+                dedup.add(entry, hash, contentLength);
+            }
+        }
+
+        // The index has the hash of a block that holds the whole file, a cut body or a marker is not that content
+        private static long indexHash(BlockKind kind, long hash) {
+            return kind == BlockKind.TEXT ? hash : DumpCache.NO_HASH;
+        }
+
+        private static boolean isDedupKind(BlockKind kind) {
+            return kind != BlockKind.BINARY && kind != BlockKind.UNREADABLE && kind != BlockKind.DUPLICATE;
+        }
+    }
+
+    // Sequential mode: the content goes straight to the output
+    private static void writeEntry(FileEntry entry, Config config, FileClassifier.Decision decision,
+                                   BlockRecorder recorder, DumpWriter writer) throws IOException {
+        try {
+            DumpCache cache = recorder.cache();
+            DumpCache.Entry reused = cache != null ? cache.findUnchanged(entry) : null;
+            if (reused != null) {
+                recorder.reused(entry, reused, writer);
+                return;
+            }
+
+            long offset = writer.position();
+            writer.write(TextFormatter.blockStart(entry.path()));
+            BlockResult result = writeBody(entry, config, decision, recorder.stats(), recorder, writer);
+            writer.write(TextFormatter.BLOCK_END);
+            recorder.rendered(entry, result, offset, writer.position() - offset - textBlockOverhead(entry), writer);
+        } finally {
+            decision.release();
+        }
+    }
+
+    // Bytes of a text block around its body
+    private static long textBlockOverhead(FileEntry entry) {
+        return byteLength(TextFormatter.blockStart(entry.path())) + byteLength(TextFormatter.BLOCK_END);
+    }
+
+    // Parallel mode and formats other than text: the body is rendered in memory and written later in walk order
+    private static RenderedBlock renderBlock(FileEntry entry, Config config, FileClassifier.Decision decision,
+                                             DumpCache cache, DumpStats stats) throws IOException {
+        try {
+            DumpCache.Entry reused = cache != null ? cache.findUnchanged(entry) : null;
+            if (reused != null) {
+                return new RenderedBlock(entry, null, null, reused);
+            }
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            BlockResult result;
+            try (DumpWriter writer = new DumpWriter(Channels.newChannel(block), Constants.SAMPLE_SIZE)) {
+                result = writeBody(entry, config, decision, stats, null, writer);
+                // Copies into the in-memory block are part of reading
+                stats.getMetrics().addNanos(DumpPhase.READ, writer.getWriteNanos());
+            }
+            return new RenderedBlock(entry, block.toByteArray(), result, null);
+        } finally {
+            decision.release();
+        }
+    }
+
+    private static void writeRendered(RenderedBlock block, BlockRecorder recorder, DumpWriter writer)
+            throws IOException {
+        if (block.reused() != null) {
+            recorder.reused(block.entry(), block.reused(), writer);
+            return;
+        }
+
+        long offset = writer.position();
+        String path = block.entry().path();
+        BlockResult result = block.result();
+        DedupTable.Original original = recorder.findOriginal(block.entry(), result.kind(), result.hash());
+        if (original != null) {
+            recorder.formatter().writeDuplicate(writer, path, original.entry().path());
+            result = new BlockResult(BlockKind.DUPLICATE, result.hash());
+        } else {
+            recorder.formatter().writeBlock(writer, path, result.kind(), block.body());
         }
+        recorder.rendered(block.entry(), result, offset, block.body().length, writer);
     }
 
-    private static boolean isTextFile(Path file) throws IOException {
-        if (Files.size(file) == 0) {
-            return true;
+    // recorder - null on worker threads, duplicates of their blocks are found on the writing thread
+    private static BlockResult writeBody(FileEntry entry, Config config, FileClassifier.Decision decision,
+                                         DumpStats stats, BlockRecorder recorder, DumpWriter writer)
+            throws IOException {
+        // May wait for the samples of the extension, which is not reading
+        FileClassifier.Verdict verdict = decision.verdict();
+        DumpMetrics metrics = stats.getMetrics();
+        DumpEvents.FileCopy event = DumpEvents.isRecording() ? new DumpEvents.FileCopy() : null;
+        if (event != null) {
+            event.begin();
         }
+        long start = System.nanoTime();
+        long writeNanos = writer.getWriteNanos();
+        long offset = writer.position();
+        long sniffNanos = 0;
+        String pathStr = entry.path();
+
+        if (verdict == FileClassifier.Verdict.BINARY) {
+            // Not opened at all, so there is no content hash for the cache and the index
+            writer.write(BINARY_SKIPPED);
+            log.debug("Binary file by extension: {}", pathStr);
+            metrics.recordFileLatency(System.nanoTime() - start);
+            commitCopyEvent(event, entry, BlockKind.BINARY, writer.position() - offset);
+            return new BlockResult(BlockKind.BINARY, DumpCache.NO_HASH);
+        }
+
+        BlockKind kind;
+        long hash = DumpCache.NO_HASH;
+        try (SeekableByteChannel channel = entry.open()) {
+            ByteBuffer buffer = READ_BUFFER.get();
+            ContentCopier.readFirstChunk(channel, buffer);
 
-        try (InputStream is = Files.newInputStream(file)) {
-            byte[] buffer = new byte[Constants.SAMPLE_SIZE];
-            int bytesRead = is.read(buffer);
-            if (bytesRead == -1) {
-                return true;
+            DumpEvents.Sniff sniffEvent = DumpEvents.isRecording() ? new DumpEvents.Sniff() : null;
+            if (sniffEvent != null) {
+                sniffEvent.begin();
+            }
+            long sniffStart = System.nanoTime();
+            DetectedCharset charset;
+            if (verdict == FileClassifier.Verdict.TEXT) {
+                charset = TextDetector.detectText(buffer);
+            } else {
+                charset = TextDetector.detect(buffer);
+                decision.learn(charset != DetectedCharset.BINARY);
             }
+            sniffNanos = System.nanoTime() - sniffStart;
+            if (sniffEvent != null && sniffEvent.shouldCommit()) {
+                sniffEvent.path = pathStr;
+                sniffEvent.charset = charset.name().toLowerCase(Locale.ROOT);
+                sniffEvent.byExtension = verdict == FileClassifier.Verdict.TEXT;
+                sniffEvent.commit();
+            }
+
+            if (charset != DetectedCharset.BINARY) {
+                log.debug("Dumping text file: {} ({})", pathStr, charset);
+
+                if (config.isIncremental() || isHashCandidate(entry, config)) {
+                    hash = hashContent(channel, buffer);
+                }
+                DedupTable.Original original = recorder != null
+                        ? recorder.findOriginal(entry, BlockKind.TEXT, hash)
+                        : null;
+
+                if (original != null) {
+                    writer.write(TextFormatter.sameAs(original.entry().path()));
+                    kind = BlockKind.DUPLICATE;
+                } else if (!charset.isAsciiCompatible()) {
+                    // Sampling needs ASCII line ends, UTF-16 files are dumped from the start
+                    CopyResult result = ContentCopier.copyDecoded(channel, buffer,
+                            config.getMaxFileSizeBytes(), config.getMaxFileLines(), charset, writer);
+                    kind = writeTruncation(result.truncation(), pathStr, writer);
+                } else if (config.isCompacting() && SourceCompactor.supports(pathStr)) {
+                    SourceCompactor compactor = new SourceCompactor(config, pathStr, charset, writer);
+                    CopyResult result = ContentCopier.copyCompacted(channel, buffer,
+                            config.getMaxFileSizeBytes(), config.getMaxFileLines(), charset, compactor);
+                    stats.addCompacted(compactor.getSavedBytes());
+                    kind = writeTruncation(result.truncation(), pathStr, writer);
+                } else if (config.isSampleMode()) {
+                    kind = writeSample(channel, buffer, pathStr, charset, config, writer);
+                } else {
+                    CopyResult result = ContentCopier.copyHead(channel, buffer,
+                            config.getMaxFileSizeBytes(), config.getMaxFileLines(), charset, writer);
+                    kind = writeTruncation(result.truncation(), pathStr, writer);
+                }
+            } else {
+                writer.write(BINARY_SKIPPED);
+                kind = BlockKind.BINARY;
+                log.debug("Detected binary file: {}", pathStr);
 
-            int nonTextCount = 0;
-            for (int i = 0; i < bytesRead; i++) {
-                int b = buffer[i] & 0xFF;
-                // Accepted bytes:
-                // \t (9), \n (10), \r (13), \f (12)
-                // printable ASCII 32-126
-                // UTF-8 continuation bytes и high-ASCII (128-255)
-                if (b < 9 || (b > 13 && b < 32) || b == 127) {
-                    nonTextCount++;
+                if (config.isIncremental()) {
+                    hash = DumpCache.contentHash(channel, buffer);
                 }
             }
+        } catch (IOException e) {
+            writer.write("[Cannot read file: "
+                    + e.getClass().getSimpleName() + "]"
+                    + System.lineSeparator());
+            kind = BlockKind.UNREADABLE;
+            log.warn("Cannot read file {}: {}", pathStr, e.getMessage());
+        }
+
+        // Output writes happen here only in sequential mode, they belong to the write phase
+        long latency = System.nanoTime() - start;
+        metrics.recordFileLatency(latency);
+        metrics.addNanos(DumpPhase.SNIFF, sniffNanos);
+        metrics.addNanos(DumpPhase.READ, latency - sniffNanos - (writer.getWriteNanos() - writeNanos));
+        commitCopyEvent(event, entry, kind, writer.position() - offset);
+        return new BlockResult(kind, hash);
+    }
+
+    private static void commitCopyEvent(DumpEvents.FileCopy event, FileEntry entry, BlockKind kind, long written) {
+        if (event != null && event.shouldCommit()) {
+            event.path = entry.path();
+            event.fileSize = entry.size();
+            event.written = written;
+            event.kind = kind.name().toLowerCase(Locale.ROOT);
+            event.commit();
+        }
+    }
+
+    private static long byteLength(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    // Files over the size limit are not hashed for dedup or the index, it would read them to the end
+    private static boolean isHashCandidate(FileEntry entry, Config config) {
+        return (config.isDeduplicated() || config.isIndexed()) && entry.size() <= config.getMaxFileSizeBytes();
+    }
+
+    // Small files are hashed from the first chunk that is already read, larger ones are read again
+    private static long hashContent(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.limit() == channel.size()) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate());
+            return crc.getValue();
+        }
+        long hash = DumpCache.contentHash(channel, buffer);
+        channel.position(0);
+        ContentCopier.readFirstChunk(channel, buffer);
+        return hash;
+    }
+
+    private static BlockKind writeTruncation(Truncation truncation, String pathStr, DumpWriter writer)
+            throws IOException {
+        if (truncation == Truncation.SIZE) {
+            writer.write("[Truncated: size limit exceeded]" + System.lineSeparator());
+            log.debug("File truncated by size limit: {}", pathStr);
+            return BlockKind.TRUNCATED_BY_SIZE;
+        } else if (truncation == Truncation.LINES) {
+            writer.write("[Truncated: line limit exceeded]" + System.lineSeparator());
+            log.debug("File truncated by line limit: {}", pathStr);
+            return BlockKind.TRUNCATED_BY_LINES;
+        }
+        return BlockKind.TEXT;
+    }
+
+    // Head and tail of the file, the middle is skipped without reading
+    private static BlockKind writeSample(SeekableByteChannel channel, ByteBuffer buffer, String pathStr,
+                                         DetectedCharset charset, Config config, DumpWriter writer)
+            throws IOException {
+        BlockKind kind = BlockKind.TEXT;
+        long headEnd = 0;
+        if (config.getSampleHeadLines() > 0) {
+            CopyResult head = ContentCopier.copyHead(channel, buffer,
+                    config.getMaxFileSizeBytes(), config.getSampleHeadLines(), charset, writer);
+            if (head.truncation() == Truncation.NONE) {
+                return kind;
+            }
+            headEnd = head.end();
+        }
 
-            // If most that 5-10% "bad" bytes - it's binary file
-            double badRatio = (double) nonTextCount / bytesRead;
-            return badRatio <= Constants.BAD_BYTES_LIMIT;
+        long tailStart = ContentCopier.findTailStart(channel, buffer, headEnd,
+                config.getMaxFileSizeBytes(), config.getSampleTailLines(), charset);
+        if (tailStart > headEnd) {
+            writer.write("[Skipped: " + (tailStart - headEnd) + " bytes]" + System.lineSeparator());
+            kind = BlockKind.SAMPLED;
+            log.debug("File sampled, middle skipped: {}", pathStr);
         }
+        ContentCopier.copyTail(channel, buffer, tailStart, charset, writer);
+        return kind;
     }
-}
\ No newline at end of file
+}
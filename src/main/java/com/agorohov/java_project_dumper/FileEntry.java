@@ -0,0 +1,25 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Non-ignored file found by a source, path is relative to the root with '/' separators
+public record FileEntry(String path, long size, long lastModified, Opener opener) {
+
+    public interface Opener {
+        SeekableByteChannel open() throws IOException;
+    }
+
+    public static FileEntry ofFile(Path file, String path, BasicFileAttributes attrs) {
+        return new FileEntry(path, attrs.size(), attrs.lastModifiedTime().toMillis(),
+                () -> FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    public SeekableByteChannel open() throws IOException {
+        return opener.open();
+    }
+}
@@ -0,0 +1,19 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Where the dumped files come from; the source applies ignore rules and counts skipped files.
+// Closed only after all the entries are dumped, entries may be opened on worker threads until then.
+public interface FileSource extends Closeable {
+
+    interface EntryConsumer {
+        void accept(FileEntry entry) throws IOException;
+    }
+
+    void walk(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,254 @@
+package com.agorohov.java_project_dumper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Files of the working directory, found by walking the file tree.
+// Every directory is listed by its own fork-join task, so the listing and stat calls of many directories
+// run in parallel (it matters on network and overlay file systems). Ignored directories are not listed at all.
+// The entries are passed to the consumer on the calling thread in a fixed order: sorted by name in each
+// directory, the content of a subdirectory right after its name, whatever the number of threads.
+// Reading the files is slower than listing them, so the walk stops forking once WALK_AHEAD_ENTRIES entries
+// wait for the consumer: the subdirectories found after that are listed when the consumer enters their parent.
+public final class FileTreeSource implements FileSource {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTreeSource.class);
+
+    private static final Comparator<Path> BY_NAME = Comparator.comparing(path -> path.getFileName().toString());
+
+    private final Config config;
+    private final Path rootPath;
+    private final Path normalizedOutput;    // null for a dump to a DumpSink
+    private final int threads;
+    private final boolean mounted;
+    private final int maxAhead;
+
+    public FileTreeSource(Config config) {
+        this(config, config.getRootPath());
+    }
+
+    // rootPath may be the root of a mounted archive, see ArchiveSource
+    public FileTreeSource(Config config, Path rootPath) {
+        this(config, rootPath, Constants.WALK_AHEAD_ENTRIES);
+    }
+
+    FileTreeSource(Config config, Path rootPath, int maxAhead) {
+        this.config = config;
+        this.rootPath = rootPath;
+        this.normalizedOutput = config.getOutputPath() != null
+                ? config.getOutputPath().toAbsolutePath().normalize()
+                : null;
+        this.threads = config.getThreads();
+        this.mounted = rootPath.getFileSystem() != FileSystems.getDefault();
+        this.maxAhead = maxAhead;
+    }
+
+    // A listed file to dump, or a subdirectory listed by its own task, not forked yet if the walk was too far ahead
+    private sealed interface Item permits FileItem, DirItem {
+    }
+
+    private record FileItem(FileEntry entry) implements Item {
+    }
+
+    private record DirItem(DirectoryTask listing, boolean forked) implements Item {
+    }
+
+    @Override
+    public void walk(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            DirectoryTask root = new DirectoryTask(rootPath, "", ignoreMatcher, stats, new AtomicInteger());
+            pool.execute(root);
+            emit(pool, root, consumer);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Tasks of the subdirectories run ahead, the consumer waits only for the one it needs next.
+    // The ones left unforked start together when their parent is reached.
+    private static void emit(ForkJoinPool pool, DirectoryTask listing, EntryConsumer consumer) throws IOException {
+        List<Item> items;
+        try {
+            items = listing.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Item item : items) {
+            if (item instanceof DirItem dir && !dir.forked()) {
+                pool.execute(dir.listing());
+            }
+        }
+        for (Item item : items) {
+            listing.ahead.decrementAndGet();
+            if (item instanceof FileItem file) {
+                consumer.accept(file.entry());
+            } else if (item instanceof DirItem dir) {
+                emit(pool, dir.listing(), consumer);
+            }
+        }
+    }
+
+    // Fork-join tasks are serializable, but these never leave the pool
+    @SuppressWarnings("serial")
+    private final class DirectoryTask extends RecursiveTask<List<Item>> {
+
+        private final Path dir;
+        private final String dirPath;
+        private final IgnoreMatcher parentMatcher;
+        private final DumpStats stats;
+        private final AtomicInteger ahead;     // entries of the walk listed and not passed to the consumer yet
+
+        private DirectoryTask(Path dir, String dirPath, IgnoreMatcher parentMatcher, DumpStats stats,
+                              AtomicInteger ahead) {
+            this.dir = dir;
+            this.dirPath = dirPath;
+            this.parentMatcher = parentMatcher;
+            this.stats = stats;
+            this.ahead = ahead;
+        }
+
+        @Override
+        protected List<Item> compute() {
+            try {
+                List<Item> items = list();
+                ahead.addAndGet(items.size());
+                return items;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<Item> list() throws IOException {
+            DumpEvents.DirectoryVisit event = DumpEvents.isRecording() ? new DumpEvents.DirectoryVisit() : null;
+            if (event != null) {
+                event.begin();
+            }
+            IgnoreMatcher matcher = parentMatcher;
+            if (!dirPath.isEmpty()) { // the root .gitignore is already in the given matcher
+                long start = System.nanoTime();
+                matcher = parentMatcher.forDirectory(dir, dirPath);
+                stats.getMetrics().addNanos(DumpPhase.IGNORE, System.nanoTime() - start);
+            }
+
+            // The tree may change under the walk (watch mode rebuilds while files are saved): what is gone by
+            // the time it is reached is left out as if it was never there
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    children.add(child);
+                }
+            } catch (NoSuchFileException e) {
+                log.debug("Directory removed during the walk: {}", dirPath);
+                return List.of();
+            }
+            children.sort(BY_NAME);
+
+            List<Item> items = new ArrayList<>(children.size());
+            for (Path child : children) {
+                // Links are not followed, a link to a directory is dumped as a file like any other link
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    log.debug("File removed during the walk: {}", child);
+                    continue;
+                }
+                if (attrs.isSymbolicLink()) {
+                    attrs = linkTargetAttributes(child, attrs);
+                }
+                String childPath = dirPath.isEmpty()
+                        ? child.getFileName().toString()
+                        : dirPath + "/" + child.getFileName();
+
+                if (attrs.isDirectory()) {
+                    if (isIgnored(matcher, childPath, true)) {
+                        stats.incSkippedDirs();
+                        log.debug("Skipping directory by ignore rule: {}", childPath);
+                        continue;
+                    }
+                    DirectoryTask task = new DirectoryTask(child, childPath, matcher, stats, ahead);
+                    boolean fork = ahead.get() < maxAhead;
+                    if (fork) {
+                        task.fork();
+                    }
+                    items.add(new DirItem(task, fork));
+                } else if (!isOutputFile(child)) {
+                    stats.incTotalFiles();
+                    if (isIgnored(matcher, childPath, false)) {
+                        stats.incIgnoredTextFiles();
+                        log.debug("Ignoring file by rule: {}", childPath);
+                        continue;
+                    }
+                    items.add(new FileItem(entryOf(child, childPath, attrs)));
+                }
+            }
+
+            if (event != null && event.shouldCommit()) {
+                event.path = dirPath;
+                event.entries = children.size();
+                event.commit();
+            }
+            return items;
+        }
+
+        // A link to a file is dumped with the content of its target, so --incremental must see the size and
+        // time of the target: a changed target behind the same link is not an unchanged file
+        private static BasicFileAttributes linkTargetAttributes(Path link, BasicFileAttributes linkAttrs) {
+            try {
+                BasicFileAttributes target = Files.readAttributes(link, BasicFileAttributes.class);
+                return target.isRegularFile() ? target : linkAttrs;
+            } catch (IOException e) {
+                return linkAttrs;           // a broken link
+            }
+        }
+
+        // Channels of a mounted zip file cannot seek (a file channel would extract the file to disk),
+        // so its files are inflated into memory up to the size limit, or with their tail for --sample
+        private FileEntry entryOf(Path file, String path, BasicFileAttributes attrs) {
+            if (!mounted) {
+                return FileEntry.ofFile(file, path, attrs);
+            }
+            return new FileEntry(path, attrs.size(), attrs.lastModifiedTime().toMillis(), () -> {
+                try (InputStream in = Files.newInputStream(file)) {
+                    return HeadTailChannel.read(in, config).open();
+                }
+            });
+        }
+
+        // Excluding output file, its cache and parts
+        private boolean isOutputFile(Path file) {
+            if (normalizedOutput == null) {
+                return false;
+            }
+            Path normalizedFile = file.toAbsolutePath().normalize();
+            return normalizedFile.equals(normalizedOutput)
+                    || DumpCache.isCacheFile(normalizedOutput, normalizedFile)
+                    || DumpSplitter.isPartFile(normalizedOutput, normalizedFile);
+        }
+
+        private boolean isIgnored(IgnoreMatcher matcher, String pathStr, boolean directory) {
+            long start = System.nanoTime();
+            boolean ignored = matcher.isIgnored(pathStr, directory);
+            stats.getMetrics().addNanos(DumpPhase.IGNORE, System.nanoTime() - start);
+            return ignored;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.agorohov.java_project_dumper;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+// --jfr: a flight recording of the whole run with the JDK "profile" settings and the dumper events
+// (see DumpEvents). A dump, batch or extract run closes it at the end, which writes the file.
+// Watch and serve modes run until Ctrl+C and never close it: the recording is dumped on exit,
+// by the shutdown hook of JFR, so it covers every dump of the session.
+public final class FlightRecording implements Closeable {
+
+    private final Recording recording;
+
+    private FlightRecording(Recording recording) {
+        this.recording = recording;
+    }
+
+    public static FlightRecording start(Path file) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException("Cannot read JFR settings: " + e.getMessage(), e);
+        }
+        Recording recording = new Recording(configuration);
+        recording.setName("java-project-dumper");
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return new FlightRecording(recording);
+    }
+
+    // Stopping writes the recording to its destination
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+    }
+}
@@ -0,0 +1,336 @@
+package com.agorohov.java_project_dumper;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Files tracked by git: either the index (working tree files, without walking the file system)
+// or the tree of a commit, read straight from the object database without checkout.
+// With a base revision only the changed files are dumped: the files of a commit that differ from the base,
+// or the tracked working tree files that differ from it (staged or not).
+// Tracked files are dumped even if they match .gitignore, like git does; default and user rules still apply.
+public final class GitSource implements FileSource {
+
+    private static final Logger log = LoggerFactory.getLogger(GitSource.class);
+
+    private final Repository repository;
+    private final Config config;
+    private final String prefix;            // root path relative to the working tree, "" or ending with '/'
+    private final String ref;               // null for the working tree
+    private final String baseRef;           // null to dump all the files
+    private final Map<String, Boolean> ignoredDirs = new HashMap<>();
+
+    private GitSource(Repository repository, Config config, String ref, String baseRef) {
+        this.repository = repository;
+        this.config = config;
+        this.ref = ref;
+        this.baseRef = baseRef;
+        this.prefix = prefixOf(repository, config.getRootPath());
+    }
+
+    public static GitSource index(Config config) throws IOException {
+        return new GitSource(openRepository(config.getRootPath()), config, null, null);
+    }
+
+    public static GitSource ref(Config config) throws IOException {
+        return new GitSource(openRepository(config.getRootPath()), config, config.getGitRef(), null);
+    }
+
+    public static GitSource changedSince(Config config) throws IOException {
+        return new GitSource(openRepository(config.getRootPath()), config, null, config.getGitBaseRef());
+    }
+
+    public static GitSource diff(Config config) throws IOException {
+        return new GitSource(openRepository(config.getRootPath()), config, config.getGitRef(),
+                config.getGitBaseRef());
+    }
+
+    @Override
+    public void walk(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        if (ref != null) {
+            walkTree(ignoreMatcher, stats, consumer);
+        } else if (baseRef != null) {
+            walkChanged(ignoreMatcher, stats, consumer);
+        } else {
+            walkIndex(ignoreMatcher, stats, consumer);
+        }
+    }
+
+    @Override
+    public void close() {
+        repository.close();
+    }
+
+    // Sizes and modification times are taken from the index, the working tree is touched only to read content
+    private void walkIndex(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        Path workTree = repository.getWorkTree().toPath();
+        Path normalizedOutput = normalizedOutput();
+        DirCache index = repository.readDirCache();
+        log.debug("Reading {} entries of the git index", index.getEntryCount());
+
+        String previousPath = null;
+        for (int i = 0; i < index.getEntryCount(); i++) {
+            DirCacheEntry entry = index.getEntry(i);
+            String path = relativeToRoot(entry.getPathString());
+            // Submodules are not dumped, conflicting entries are listed once per merge stage
+            if (path == null || entry.getFileMode() == FileMode.GITLINK || path.equals(previousPath)) {
+                continue;
+            }
+            previousPath = path;
+
+            Path file = workTree.resolve(entry.getPathString());
+            if (file.toAbsolutePath().normalize().equals(normalizedOutput)
+                    || isInIgnoredDirectory(path, ignoreMatcher, stats)) {
+                continue;
+            }
+
+            stats.incTotalFiles();
+            if (isIgnoredFile(path, ignoreMatcher, stats)) {
+                stats.incIgnoredTextFiles();
+                continue;
+            }
+
+            consumer.accept(new FileEntry(path, entry.getLength(), entry.getLastModifiedInstant().toEpochMilli(),
+                    () -> FileChannel.open(file, StandardOpenOption.READ)));
+        }
+    }
+
+    // Ignored subtrees are not even read from the object database, with a base revision
+    // neither are the subtrees equal to the base ones, so a diff costs as much as the change
+    private void walkTree(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer) throws IOException {
+        ObjectId commitId = resolve(ref);
+
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository);
+             ObjectReader reader = repository.newObjectReader()) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            long commitTime = commit.getCommitterIdent().getWhenAsInstant().toEpochMilli();
+            log.debug("Reading tree of commit {}", commit.getName());
+
+            if (baseRef != null) {
+                RevCommit base = revWalk.parseCommit(resolve(baseRef));
+                log.debug("Reading only the changes since commit {}", base.getName());
+                treeWalk.addTree(base.getTree());
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            }
+            int tree = treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(false);
+            while (treeWalk.next()) {
+                String repoPath = treeWalk.getPathString();
+                if (treeWalk.isSubtree()) {
+                    if (isOnRootPath(repoPath)) {
+                        treeWalk.enterSubtree();
+                        continue;
+                    }
+                    String path = relativeToRoot(repoPath);
+                    if (path != null && !isIgnoredDirectory(path, ignoreMatcher, stats)) {
+                        treeWalk.enterSubtree();
+                    }
+                    continue;
+                }
+
+                // Files deleted since the base have nothing to dump
+                String path = relativeToRoot(repoPath);
+                FileMode mode = treeWalk.getFileMode(tree);
+                if (path == null || mode == FileMode.GITLINK || mode == FileMode.MISSING) {
+                    continue;
+                }
+
+                stats.incTotalFiles();
+                if (isIgnoredFile(path, ignoreMatcher, stats)) {
+                    stats.incIgnoredTextFiles();
+                    continue;
+                }
+
+                ObjectId blobId = treeWalk.getObjectId(tree);
+                long size = reader.getObjectSize(blobId, org.eclipse.jgit.lib.Constants.OBJ_BLOB);
+                consumer.accept(new FileEntry(path, size, commitTime, () -> openBlob(blobId)));
+            }
+        }
+    }
+
+    // Tracked files that differ from the base commit in the index or in the working tree, like `git diff <rev>`.
+    // The working tree is compared by the stat data of the index first, only files touched since the last
+    // `git add` are hashed. Directories not in the index (untracked) are not entered.
+    private void walkChanged(IgnoreMatcher ignoreMatcher, DumpStats stats, EntryConsumer consumer)
+            throws IOException {
+        ObjectId baseId = resolve(baseRef);
+        Path workTree = repository.getWorkTree().toPath();
+        Path normalizedOutput = normalizedOutput();
+
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            RevCommit base = revWalk.parseCommit(baseId);
+            log.debug("Reading working tree changes since commit {}", base.getName());
+
+            treeWalk.addTree(base.getTree());
+            int index = treeWalk.addTree(new DirCacheIterator(repository.readDirCache()));
+            FileTreeIterator workTreeIterator = new FileTreeIterator(repository);
+            int work = treeWalk.addTree(workTreeIterator);
+            workTreeIterator.setDirCacheIterator(treeWalk, index);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            treeWalk.setRecursive(false);
+
+            while (treeWalk.next()) {
+                String repoPath = treeWalk.getPathString();
+                if (treeWalk.getFileMode(index) == FileMode.MISSING) {
+                    continue;
+                }
+                if (treeWalk.isSubtree()) {
+                    if (isOnRootPath(repoPath)) {
+                        treeWalk.enterSubtree();
+                        continue;
+                    }
+                    String path = relativeToRoot(repoPath);
+                    if (path != null && !isIgnoredDirectory(path, ignoreMatcher, stats)) {
+                        treeWalk.enterSubtree();
+                    }
+                    continue;
+                }
+
+                // Files deleted in the working tree have nothing to dump
+                String path = relativeToRoot(repoPath);
+                FileMode mode = treeWalk.getFileMode(work);
+                if (path == null || mode == FileMode.GITLINK || mode == FileMode.MISSING
+                        || mode == FileMode.TREE) {
+                    continue;
+                }
+                Path file = workTree.resolve(repoPath);
+                if (file.toAbsolutePath().normalize().equals(normalizedOutput)) {
+                    continue;
+                }
+
+                stats.incTotalFiles();
+                if (isIgnoredFile(path, ignoreMatcher, stats)) {
+                    stats.incIgnoredTextFiles();
+                    continue;
+                }
+
+                FileTreeIterator current = treeWalk.getTree(work, FileTreeIterator.class);
+                consumer.accept(new FileEntry(path, current.getEntryLength(),
+                        current.getEntryLastModifiedInstant().toEpochMilli(),
+                        () -> FileChannel.open(file, StandardOpenOption.READ)));
+            }
+        }
+    }
+
+    // null for a dump to a DumpSink, equals() is false then
+    private Path normalizedOutput() {
+        return config.getOutputPath() != null ? config.getOutputPath().toAbsolutePath().normalize() : null;
+    }
+
+    private ObjectId resolve(String rev) throws IOException {
+        ObjectId id = repository.resolve(rev);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown git revision: " + rev);
+        }
+        return id;
+    }
+
+    // Small blobs are inflated into memory. A blob too large for that is streamed: up to the size limit
+    // for its head, or to the end with --sample, keeping its real size and tail (see HeadTailChannel).
+    private SeekableByteChannel openBlob(ObjectId blobId) throws IOException {
+        ObjectLoader loader = repository.open(blobId, org.eclipse.jgit.lib.Constants.OBJ_BLOB);
+        if (!loader.isLarge()) {
+            return new ByteArrayChannel(loader.getCachedBytes());
+        }
+
+        try (InputStream in = loader.openStream()) {
+            return HeadTailChannel.read(in, config).open();
+        }
+    }
+
+    private boolean isIgnoredFile(String path, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        if (isIgnored(path, false, ignoreMatcher, stats)) {
+            log.debug("Ignoring file by rule: {}", path);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isIgnoredDirectory(String path, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        if (isIgnored(path, true, ignoreMatcher, stats)) {
+            stats.incSkippedDirs();
+            log.debug("Skipping directory by ignore rule: {}", path);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isIgnored(String path, boolean directory, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        long start = System.nanoTime();
+        boolean ignored = ignoreMatcher.isIgnored(path, directory);
+        stats.getMetrics().addNanos(DumpPhase.IGNORE, System.nanoTime() - start);
+        return ignored;
+    }
+
+    // The index is a flat list, so every parent directory is checked once and remembered
+    private boolean isInIgnoredDirectory(String path, IgnoreMatcher ignoreMatcher, DumpStats stats) {
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            String dir = path.substring(0, slash);
+            Boolean ignored = ignoredDirs.get(dir);
+            if (ignored == null) {
+                ignored = isIgnoredDirectory(dir, ignoreMatcher, stats);
+                ignoredDirs.put(dir, ignored);
+            }
+            if (ignored) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Path relative to the dump root, null if the file is outside of it
+    private String relativeToRoot(String repoPath) {
+        if (prefix.isEmpty()) {
+            return repoPath;
+        }
+        return repoPath.startsWith(prefix) ? repoPath.substring(prefix.length()) : null;
+    }
+
+    // Directory between the top of the working tree and the dump root
+    private boolean isOnRootPath(String repoPath) {
+        return prefix.startsWith(repoPath + "/");
+    }
+
+    private static Repository openRepository(Path rootPath) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder()
+                .readEnvironment()
+                .findGitDir(rootPath.toAbsolutePath().toFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("Not a git repository: " + rootPath);
+        }
+        return builder.build();
+    }
+
+    private static String prefixOf(Repository repository, Path rootPath) {
+        if (repository.isBare()) {
+            return "";
+        }
+        Path workTree = repository.getWorkTree().toPath().toAbsolutePath().normalize();
+        String relative = workTree.relativize(rootPath.toAbsolutePath().normalize()).toString().replace("\\", "/");
+        return relative.isEmpty() ? "" : relative + "/";
+    }
+}
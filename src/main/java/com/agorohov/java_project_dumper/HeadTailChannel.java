@@ -0,0 +1,144 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.CRC32C;
+
+// In-memory content of a stream that cannot seek (an entry of an archive, a large git blob) for --sample.
+// The stream is read to the end, but only its head and its last bytes within the size limit are kept:
+// size() is the real size, so the sampled tail and the skipped bytes are those of the whole file.
+// The middle is not kept, its hash is taken on the way.
+public final class HeadTailChannel implements SeekableByteChannel {
+
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    private final byte[] head;
+    private final byte[] tail;          // the last bytes, starting at size - tail.length
+    private final long size;
+    private final long hash;
+    private long position = 0;
+    private boolean open = true;
+
+    private HeadTailChannel(byte[] head, byte[] tail, long size, long hash) {
+        this.head = head;
+        this.tail = tail;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    // Reads the stream now, the opener gives channels over the kept bytes.
+    // Without --sample only the head is dumped and the stream is read just past the size limit.
+    public static FileEntry.Opener read(InputStream in, Config config) throws IOException {
+        long maxBytes = config.getMaxFileSizeBytes();
+        if (!config.isSampleMode()) {
+            byte[] bytes = in.readNBytes((int) Math.min(MAX_ARRAY, maxBytes + 1));
+            return () -> new ByteArrayChannel(bytes);
+        }
+
+        // The head is copied in whole chunks, the last one may start just before the limit
+        CRC32C crc = new CRC32C();
+        byte[] head = in.readNBytes((int) Math.min(MAX_ARRAY, maxBytes + Constants.READ_BUFFER_SIZE));
+        crc.update(head);
+        int tailCapacity = config.getSampleTailLines() > 0 ? (int) Math.min(MAX_ARRAY, maxBytes) : 0;
+        byte[] ring = null;
+        int ringPosition = 0;
+        long rest = 0;
+
+        byte[] chunk = new byte[Constants.READ_BUFFER_SIZE];
+        for (int length = in.read(chunk); length >= 0; length = in.read(chunk)) {
+            crc.update(chunk, 0, length);
+            rest += length;
+            if (tailCapacity == 0) {
+                continue;
+            }
+            if (ring == null) {
+                ring = new byte[tailCapacity];
+            }
+            // Only the last tailCapacity bytes of the chunk can stay in the ring
+            int from = Math.max(0, length - tailCapacity);
+            while (from < length) {
+                int count = Math.min(length - from, tailCapacity - ringPosition);
+                System.arraycopy(chunk, from, ring, ringPosition, count);
+                from += count;
+                ringPosition = (ringPosition + count) % tailCapacity;
+            }
+        }
+
+        byte[] tail = new byte[(int) Math.min(rest, tailCapacity)];
+        if (rest >= tailCapacity && tailCapacity > 0) {
+            // Full ring, the oldest byte is at the write position
+            System.arraycopy(ring, ringPosition, tail, 0, tailCapacity - ringPosition);
+            System.arraycopy(ring, 0, tail, tailCapacity - ringPosition, ringPosition);
+        } else if (tail.length > 0) {
+            System.arraycopy(ring, 0, tail, 0, tail.length);
+        }
+        long size = head.length + rest;
+        long hash = crc.getValue();
+        return () -> new HeadTailChannel(head, tail, size, hash);
+    }
+
+    // CRC32C of the whole stream, as DumpCache.contentHash() would compute it
+    public long contentHash() {
+        return hash;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        int length;
+        if (position < head.length) {
+            length = (int) Math.min(dst.remaining(), head.length - position);
+            dst.put(head, (int) position, length);
+        } else {
+            long tailStart = size - tail.length;
+            if (position < tailStart) {
+                throw new IOException("The middle of the content is not kept, position " + position);
+            }
+            length = (int) Math.min(dst.remaining(), size - position);
+            dst.put(tail, (int) (position - tailStart), length);
+        }
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) {
+        position = Math.min(newPosition, size);
+        return this;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
@@ -1,17 +1,16 @@
 package com.agorohov.java_project_dumper;
 
-import org.eclipse.jgit.ignore.IgnoreNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 public final class IgnoreLoader {
@@ -20,63 +19,137 @@ public final class IgnoreLoader {
 
     private static final Logger log = LoggerFactory.getLogger(IgnoreLoader.class);
 
-    public static IgnoreNode loadIgnoreNode(Path rootPath, boolean useGitignore) throws IOException {
-        IgnoreNode node = new IgnoreNode();
+    public static IgnoreMatcher loadIgnoreMatcher(Path rootPath, boolean useGitignore) throws IOException {
+        return loadIgnoreMatcher(rootPath, useGitignore, IgnoreLoader::loadNestedGitignore);
+    }
 
-        // Default ignores
-        try (InputStream is = FileDumper.class.getResourceAsStream(Constants.DEFAULT_IGNORE_RESOURCE)) {
-            if (is != null) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    int rulesCount = loadIgnoreRules(reader, node);
-                    logDebugLoadedRules(rulesCount, Constants.DEFAULT_IGNORE_RESOURCE);
-                }
-            } else {
-                log.warn("Resource {} not found in JAR", Constants.DEFAULT_IGNORE_RESOURCE);
-            }
-        } catch (IOException e) {
-            log.error("Error loading default ignore patterns: {}", e.getMessage());
-        }
+    public static IgnoreMatcher loadIgnoreMatcher(Path rootPath, boolean useGitignore,
+                                                  IgnoreMatcher.NestedRulesLoader nestedLoader) throws IOException {
+        return loadIgnoreMatcher(rootPath, useGitignore, List.of(), nestedLoader);
+    }
+
+    // extraRules - lines in the .projectdumperignore syntax given by the caller, they go after the file's rules
+    public static IgnoreMatcher loadIgnoreMatcher(Path rootPath, boolean useGitignore, List<String> extraRules)
+            throws IOException {
+        return loadIgnoreMatcher(rootPath, useGitignore, extraRules, IgnoreLoader::loadNestedGitignore);
+    }
+
+    private static IgnoreMatcher loadIgnoreMatcher(Path rootPath, boolean useGitignore, List<String> extraRules,
+                                                   IgnoreMatcher.NestedRulesLoader nestedLoader) throws IOException {
+        List<String> gitignoreRules = List.of();
 
         // .gitignore
         if (useGitignore) {
             Path gitIgnore = rootPath.resolve(Constants.GITIGNORE_FILENAME);
             if (Files.exists(gitIgnore)) {
+                DumpEvents.IgnoreRulesLoad event = DumpEvents.isRecording() ? new DumpEvents.IgnoreRulesLoad() : null;
+                if (event != null) {
+                    event.begin();
+                }
                 try (BufferedReader reader = Files.newBufferedReader(gitIgnore, StandardCharsets.UTF_8)) {
-                    int rulesCount = loadIgnoreRules(reader, node);
-                    logDebugLoadedRules(rulesCount, Constants.GITIGNORE_FILENAME);
+                    gitignoreRules = readIgnoreRules(reader);
+                    logDebugLoadedRules(gitignoreRules.size(), Constants.GITIGNORE_FILENAME);
+                    commitLoadEvent(event, Constants.GITIGNORE_FILENAME, gitignoreRules.size());
                 } catch (IOException e) {
                     log.debug("Error reading .gitignore ({}): {}", Constants.GITIGNORE_FILENAME, e.getMessage());
                 }
             }
         }
 
-        // User's .projectdumperignore
+        // User's .projectdumperignore, its rules override all the others
+        List<String> userRules = new ArrayList<>();
         Path ignoreFile = rootPath.resolve(Constants.IGNORE_FILENAME);
         if (Files.exists(ignoreFile)) {
+            DumpEvents.IgnoreRulesLoad event = DumpEvents.isRecording() ? new DumpEvents.IgnoreRulesLoad() : null;
+            if (event != null) {
+                event.begin();
+            }
             try (BufferedReader reader = Files.newBufferedReader(ignoreFile, StandardCharsets.UTF_8)) {
-                int rulesCount = loadIgnoreRules(reader, node);
-                logDebugLoadedRules(rulesCount, Constants.IGNORE_FILENAME);
+                userRules = readIgnoreRules(reader);
+                logDebugLoadedRules(userRules.size(), Constants.IGNORE_FILENAME);
+                commitLoadEvent(event, Constants.IGNORE_FILENAME, userRules.size());
             } catch (IOException e) {
                 log.error("Error reading {}: {}", Constants.IGNORE_FILENAME, e.getMessage());
             }
         }
 
-        return node;
+        if (!extraRules.isEmpty()) {
+            userRules = new ArrayList<>(userRules);
+            userRules.addAll(extraRules);
+        }
+
+        // Default ignores go first, the root .gitignore may override them
+        IgnoreRules rootRules;
+        if (gitignoreRules.isEmpty()) {
+            rootRules = DefaultRules.COMPILED;
+        } else {
+            List<String> rules = new ArrayList<>(DefaultRules.LINES);
+            rules.addAll(gitignoreRules);
+            rootRules = IgnoreRules.compile(rules);
+        }
+
+        return IgnoreMatcher.root(rootRules, IgnoreRules.compile(userRules), useGitignore, nestedLoader);
+    }
+
+    // Default ignores are read from the JAR once and shared by all roots dumped in this JVM
+    private static final class DefaultRules {
+        static final List<String> LINES = loadDefaultRules();
+        static final IgnoreRules COMPILED = IgnoreRules.compile(LINES);
     }
 
-    private static int loadIgnoreRules(BufferedReader reader, IgnoreNode node) throws IOException {
-        List<String> rules = reader.lines()
+    private static List<String> loadDefaultRules() {
+        try (InputStream is = FileDumper.class.getResourceAsStream(Constants.DEFAULT_IGNORE_RESOURCE)) {
+            if (is != null) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                    List<String> rules = readIgnoreRules(reader);
+                    logDebugLoadedRules(rules.size(), Constants.DEFAULT_IGNORE_RESOURCE);
+                    return rules;
+                }
+            } else {
+                log.warn("Resource {} not found in JAR", Constants.DEFAULT_IGNORE_RESOURCE);
+            }
+        } catch (IOException e) {
+            log.error("Error loading default ignore patterns: {}", e.getMessage());
+        }
+        return List.of();
+    }
+
+    // .gitignore of a subdirectory, its patterns are relative to that directory
+    public static IgnoreRules loadNestedGitignore(Path dir, String dirPath) {
+        Path gitIgnore = dir.resolve(Constants.GITIGNORE_FILENAME);
+        if (!Files.isRegularFile(gitIgnore)) {
+            return IgnoreRules.empty();
+        }
+
+        DumpEvents.IgnoreRulesLoad event = DumpEvents.isRecording() ? new DumpEvents.IgnoreRulesLoad() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(gitIgnore, StandardCharsets.UTF_8)) {
+            List<String> rules = readIgnoreRules(reader);
+            logDebugLoadedRules(rules.size(), dirPath + "/" + Constants.GITIGNORE_FILENAME);
+            IgnoreRules compiled = IgnoreRules.compile(rules);
+            commitLoadEvent(event, dirPath + "/" + Constants.GITIGNORE_FILENAME, rules.size());
+            return compiled;
+        } catch (IOException e) {
+            log.debug("Error reading {}/{}: {}", dirPath, Constants.GITIGNORE_FILENAME, e.getMessage());
+            return IgnoreRules.empty();
+        }
+    }
+
+    private static List<String> readIgnoreRules(BufferedReader reader) throws IOException {
+        return reader.lines()
                 .map(String::trim)
                 .filter(line -> !line.isEmpty() && !line.startsWith("#"))
                 .toList();
+    }
 
-        String content = String.join(System.lineSeparator(), rules) + System.lineSeparator();
-
-        try (InputStream in = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))) {
-            node.parse(in);
+    private static void commitLoadEvent(DumpEvents.IgnoreRulesLoad event, String file, int rules) {
+        if (event != null && event.shouldCommit()) {
+            event.file = file;
+            event.rules = rules;
+            event.commit();
         }
-
-        return rules.size();
     }
 
     private static void logDebugLoadedRules(int rulesCount, String rulesSource) {
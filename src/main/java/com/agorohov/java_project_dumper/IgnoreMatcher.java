@@ -0,0 +1,80 @@
+package com.agorohov.java_project_dumper;
+
+import java.nio.file.Path;
+
+// Ignore rules for one directory of the walk: the rules of the directory's own .gitignore and a link
+// to the parent directory's matcher. Matchers are immutable and shared by the subdirectories.
+public final class IgnoreMatcher {
+
+    // Source of nested .gitignore rules, the dump server keeps them compiled between dumps
+    public interface NestedRulesLoader {
+        IgnoreRules load(Path dir, String dirPath);
+    }
+
+    private final IgnoreRules overrides;
+    private final IgnoreRules rules;
+    private final String basePath;
+    private final IgnoreMatcher parent;
+    private final boolean useGitignore;
+    private final NestedRulesLoader nestedLoader;
+
+    private IgnoreMatcher(IgnoreRules overrides, IgnoreRules rules, String basePath, IgnoreMatcher parent,
+                          boolean useGitignore, NestedRulesLoader nestedLoader) {
+        this.overrides = overrides;
+        this.rules = rules;
+        this.basePath = basePath;
+        this.parent = parent;
+        this.useGitignore = useGitignore;
+        this.nestedLoader = nestedLoader;
+    }
+
+    // rootRules - default and root .gitignore rules, overrides - .projectdumperignore rules that win over everything
+    public static IgnoreMatcher root(IgnoreRules rootRules, IgnoreRules overrides, boolean useGitignore) {
+        return root(rootRules, overrides, useGitignore, IgnoreLoader::loadNestedGitignore);
+    }
+
+    public static IgnoreMatcher root(IgnoreRules rootRules, IgnoreRules overrides, boolean useGitignore,
+                                     NestedRulesLoader nestedLoader) {
+        return new IgnoreMatcher(overrides, rootRules, "", null, useGitignore, nestedLoader);
+    }
+
+    // Path is relative to the project root with '/' separators
+    public boolean isIgnored(String path, boolean directory) {
+        DumpEvents.IgnoreDecision event = DumpEvents.isRecording() ? new DumpEvents.IgnoreDecision() : null;
+        if (event != null) {
+            event.begin();
+        }
+        Boolean ignored = overrides.check(path, directory);
+
+        // Deeper .gitignore files take precedence
+        for (IgnoreMatcher matcher = this; ignored == null && matcher != null; matcher = matcher.parent) {
+            ignored = matcher.rules.check(matcher.relativize(path), directory);
+        }
+
+        boolean result = Boolean.TRUE.equals(ignored);
+        if (event != null && event.shouldCommit()) {
+            event.path = path;
+            event.directory = directory;
+            event.ignored = result;
+            event.commit();
+        }
+        return result;
+    }
+
+    // Matcher for the content of the directory, its .gitignore is loaded on the first visit
+    public IgnoreMatcher forDirectory(Path dir, String dirPath) {
+        if (!useGitignore || dirPath.isEmpty()) {
+            return this;
+        }
+
+        IgnoreRules nested = nestedLoader.load(dir, dirPath);
+        if (nested.isEmpty()) {
+            return this;
+        }
+        return new IgnoreMatcher(overrides, nested, dirPath, this, true, nestedLoader);
+    }
+
+    private String relativize(String path) {
+        return basePath.isEmpty() ? path : path.substring(basePath.length() + 1);
+    }
+}
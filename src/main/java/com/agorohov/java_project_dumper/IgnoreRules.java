@@ -0,0 +1,150 @@
+package com.agorohov.java_project_dumper;
+
+import org.eclipse.jgit.ignore.FastIgnoreRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Compiled rules of one ignore level. Rules are indexed by literal name, path, extension (suffix) and prefix,
+// so a check evaluates only the rules that can match the path; the rest are matched as globs.
+// Semantics are the same as IgnoreNode.checkIgnored: the last matching rule wins.
+public final class IgnoreRules {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final List<FastIgnoreRule> rules = new ArrayList<>();
+    private final Map<String, int[]> byName = new HashMap<>();
+    private final Map<String, int[]> byPath = new HashMap<>();
+    private final Map<String, int[]> bySuffix = new HashMap<>();
+    private final Map<String, int[]> byPrefix = new HashMap<>();
+    private int[] suffixLengths = NO_RULES;
+    private int[] prefixLengths = NO_RULES;
+    private int[] genericRules = NO_RULES;
+
+    private IgnoreRules() {}
+
+    public static IgnoreRules empty() {
+        return new IgnoreRules();
+    }
+
+    public static IgnoreRules compile(List<String> lines) {
+        IgnoreRules compiled = new IgnoreRules();
+        TreeSet<Integer> suffixLengths = new TreeSet<>();
+        TreeSet<Integer> prefixLengths = new TreeSet<>();
+        List<Integer> generic = new ArrayList<>();
+
+        for (String line : lines) {
+            FastIgnoreRule rule = new FastIgnoreRule(line);
+            if (rule.isEmpty()) {
+                continue;
+            }
+            int index = compiled.rules.size();
+            compiled.rules.add(rule);
+
+            String pattern = line.startsWith("!") ? line.substring(1) : line;
+            if (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.indexOf('/') >= 0;
+
+            if (pattern.isEmpty() || pattern.indexOf('\\') >= 0) {
+                generic.add(index);
+            } else if (!hasWildcards(pattern)) {
+                if (anchored) {
+                    add(compiled.byPath, pattern.startsWith("/") ? pattern.substring(1) : pattern, index);
+                } else {
+                    add(compiled.byName, pattern, index);
+                }
+            } else if (!anchored && pattern.charAt(0) == '*' && !hasWildcards(pattern.substring(1))) {
+                String suffix = pattern.substring(1);
+                add(compiled.bySuffix, suffix, index);
+                suffixLengths.add(suffix.length());
+            } else if (!anchored && pattern.charAt(pattern.length() - 1) == '*'
+                    && !hasWildcards(pattern.substring(0, pattern.length() - 1))) {
+                String prefix = pattern.substring(0, pattern.length() - 1);
+                add(compiled.byPrefix, prefix, index);
+                prefixLengths.add(prefix.length());
+            } else {
+                generic.add(index);
+            }
+        }
+
+        compiled.suffixLengths = suffixLengths.stream().mapToInt(Integer::intValue).toArray();
+        compiled.prefixLengths = prefixLengths.stream().mapToInt(Integer::intValue).toArray();
+        compiled.genericRules = generic.stream().mapToInt(Integer::intValue).toArray();
+        return compiled;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // TRUE - ignored, FALSE - negated by '!', null - no rule matches
+    public Boolean check(String path, boolean directory) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int best = -1;
+        best = bestMatch(byName.get(name), best, path, directory);
+        best = bestMatch(byPath.get(path), best, path, directory);
+        for (int length : suffixLengths) {
+            if (length > name.length()) {
+                break;
+            }
+            best = bestMatch(bySuffix.get(name.substring(name.length() - length)), best, path, directory);
+        }
+        for (int length : prefixLengths) {
+            if (length > name.length()) {
+                break;
+            }
+            best = bestMatch(byPrefix.get(name.substring(0, length)), best, path, directory);
+        }
+        best = bestMatch(genericRules, best, path, directory);
+
+        return best < 0 ? null : rules.get(best).getResult();
+    }
+
+    // Index of the last matching rule among candidates, only rules after 'best' can change the result
+    private int bestMatch(int[] candidates, int best, String path, boolean directory) {
+        if (candidates == null) {
+            return best;
+        }
+        for (int i = candidates.length - 1; i >= 0 && candidates[i] > best; i--) {
+            if (rules.get(candidates[i]).isMatch(path, directory, true)) {
+                return candidates[i];
+            }
+        }
+        return best;
+    }
+
+    private static boolean hasWildcards(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void add(Map<String, int[]> index, String key, int rule) {
+        int[] rules = index.get(key);
+        if (rules == null) {
+            index.put(key, new int[]{rule});
+        } else {
+            int[] extended = Arrays.copyOf(rules, rules.length + 1);
+            extended[rules.length] = rule;
+            index.put(key, extended);
+        }
+    }
+}
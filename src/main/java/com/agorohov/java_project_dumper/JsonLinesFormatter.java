@@ -0,0 +1,83 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// One JSON object per file and line: {"path":...,"kind":...,"content":...},
+// a duplicate has "same_as" with the path of the first copy instead of the content.
+// There is no header or footer, the stats go to the console and --metrics.
+public final class JsonLinesFormatter implements DumpFormatter {
+
+    public static final JsonLinesFormatter INSTANCE = new JsonLinesFormatter();
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private JsonLinesFormatter() {}
+
+    @Override
+    public void writeHeader(DumpWriter writer, String title) {
+    }
+
+    @Override
+    public void writeBlock(DumpWriter writer, String path, BlockKind kind, byte[] body) throws IOException {
+        writeStart(writer, path, kind);
+        writer.write(",\"content\":");
+        writeString(writer, toUtf8(body));
+        writer.write("}\n");
+    }
+
+    @Override
+    public void writeDuplicate(DumpWriter writer, String path, String originalPath) throws IOException {
+        writeStart(writer, path, BlockKind.DUPLICATE);
+        writer.write(",\"same_as\":");
+        writeString(writer, originalPath.getBytes(StandardCharsets.UTF_8));
+        writer.write("}\n");
+    }
+
+    @Override
+    public void writeFooter(DumpWriter writer, DumpStats stats) {
+    }
+
+    private static void writeStart(DumpWriter writer, String path, BlockKind kind) throws IOException {
+        writer.write("{\"path\":");
+        writeString(writer, path.getBytes(StandardCharsets.UTF_8));
+        writer.write(",\"kind\":\"" + kind.name().toLowerCase(Locale.ROOT) + "\"");
+    }
+
+    // Latin-1 files are dumped as they are and a size limit may cut a multi-byte character, such bytes are
+    // not valid UTF-8 and get U+FFFD. ASCII bodies, most of them, are not decoded at all.
+    private static byte[] toUtf8(byte[] body) {
+        for (byte b : body) {
+            if (b < 0) {
+                return new String(body, StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return body;
+    }
+
+    // The content is UTF-8, only quotes, backslashes and control characters are escaped.
+    // Runs of bytes that need no escaping are written at once.
+    private static void writeString(DumpWriter writer, byte[] bytes) throws IOException {
+        writer.write("\"");
+        int runStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            if (b >= 0x20 && b != '"' && b != '\\') {
+                continue;
+            }
+            writer.write(bytes, runStart, i - runStart);
+            runStart = i + 1;
+            switch (b) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> writer.write(new byte[]{'\\', 'u', '0', '0', HEX[b >> 4], HEX[b & 0xF]});
+            }
+        }
+        writer.write(bytes, runStart, bytes.length - runStart);
+        writer.write("\"");
+    }
+}
@@ -0,0 +1,41 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary framing, one frame per file: kind (1 byte, BlockKind ordinal), path length (4 bytes),
+// path in UTF-8, body length (8 bytes), body. Numbers are big-endian. A duplicate has the path
+// of the first copy as its body. A reader skips a file by its lengths, without scanning the content.
+// There is no header or footer, the stats go to the console and --metrics.
+public final class LengthPrefixedFormatter implements DumpFormatter {
+
+    public static final LengthPrefixedFormatter INSTANCE = new LengthPrefixedFormatter();
+
+    private LengthPrefixedFormatter() {}
+
+    @Override
+    public void writeHeader(DumpWriter writer, String title) {
+    }
+
+    @Override
+    public void writeBlock(DumpWriter writer, String path, BlockKind kind, byte[] body) throws IOException {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frameStart = ByteBuffer.allocate(1 + 4 + pathBytes.length + 8);
+        frameStart.put((byte) kind.ordinal());
+        frameStart.putInt(pathBytes.length);
+        frameStart.put(pathBytes);
+        frameStart.putLong(body.length);
+        writer.write(frameStart.array());
+        writer.write(body);
+    }
+
+    @Override
+    public void writeDuplicate(DumpWriter writer, String path, String originalPath) throws IOException {
+        writeBlock(writer, path, BlockKind.DUPLICATE, originalPath.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeFooter(DumpWriter writer, DumpStats stats) {
+    }
+}
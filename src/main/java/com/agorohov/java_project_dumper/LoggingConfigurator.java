@@ -4,13 +4,33 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import org.slf4j.LoggerFactory;
 
+// Must run before the first logger is created. Logback is loaded and configured only for --debug,
+// otherwise the lightweight ConsoleLogProvider is used and startup skips Logback completely.
 public final class LoggingConfigurator {
 
+    private static final String PROVIDER_PROPERTY = "slf4j.provider";
+    private static final String VERBOSITY_PROPERTY = "slf4j.internal.verbosity";
+
     private LoggingConfigurator() {}
 
     public static void configure(boolean debug) {
-        Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        if (debug) {
+            Logback.enableDebug();
+            return;
+        }
+        if (System.getProperty(PROVIDER_PROPERTY) == null) {
+            System.setProperty(PROVIDER_PROPERTY, ConsoleLogProvider.class.getName());
+            System.setProperty(VERBOSITY_PROPERTY, "WARN");
+        }
+    }
+
+    // Separate class, so Logback classes are not even resolved without --debug
+    private static final class Logback {
+
+        private static void enableDebug() {
+            Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
 
-        root.setLevel(debug ? Level.DEBUG : Level.INFO);
+            root.setLevel(Level.DEBUG);
+        }
     }
 }
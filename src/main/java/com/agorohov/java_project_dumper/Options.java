@@ -4,10 +4,34 @@ public enum Options {
     HELP("--help"),
     SHOW_DEFAULT_IGNORE("--show-default-ignore"),
     PATH("--path="),
+    PATHS_FROM("--paths-from="),
     OUTPUT("--output="),
     MAX_FILE_SIZE("--max-file-size="),
     MAX_FILE_LINES("--max-file-lines="),
+    THREADS("--threads="),
+    SAMPLE("--sample="),
+    INCREMENTAL("--incremental"),
+    WATCH("--watch"),
+    SERVE("--serve"),
+    PORT("--port="),
+    COMPRESS("--compress="),
+    FORMAT("--format="),
+    COMPACT("--compact="),
+    OUTLINE("--outline"),
+    SPLIT("--split="),
+    INDEX("--index"),
+    EXTRACT("--extract="),
+    SOURCE("--source="),
+    GIT_REF("--git-ref="),
+    CHANGED_SINCE("--changed-since="),
+    DIFF("--diff="),
+    METRICS("--metrics="),
+    JFR("--jfr="),
     NO_GITIGNORE("--no-gitignore"),
+    NO_DEDUP("--no-dedup"),
+    TEXT_EXT("--text-ext="),
+    BINARY_EXT("--binary-ext="),
+    INCLUDE("--include="),
     DEBUG("--debug");
 
     private final String value;
@@ -0,0 +1,79 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class OrderedBlockWriter<T> implements Closeable {
+
+    public interface BlockConsumer<T> {
+        void accept(T block) throws IOException;
+    }
+
+    private final BlockConsumer<T> consumer;
+    private final ExecutorService executor;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+    private final int maxPending;
+
+    public OrderedBlockWriter(BlockConsumer<T> consumer, int threads) {
+        this.consumer = consumer;
+        this.maxPending = threads * Constants.PENDING_BLOCKS_PER_THREAD;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "dumper-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Blocks are written in submission order, no matter which worker finishes first
+    public void submit(Callable<T> block) throws IOException {
+        pending.addLast(executor.submit(block));
+
+        // Bounded window: the walker waits for the oldest block instead of buffering the whole tree
+        while (pending.size() > maxPending) {
+            writeNext();
+        }
+    }
+
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        Future<T> next = pending.removeFirst();
+        try {
+            consumer.accept(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for file block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        pending.forEach(future -> future.cancel(true));
+        pending.clear();
+        executor.shutdownNow();
+    }
+}
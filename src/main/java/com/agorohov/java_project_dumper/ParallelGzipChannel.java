@@ -0,0 +1,121 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// pigz-like gzip output: the stream is split into chunks that are deflated independently on a thread pool
+// and written in order as separate gzip members. A multi-member file is a valid gzip file for gunzip.
+public final class ParallelGzipChannel implements WritableByteChannel {
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b,      // magic
+            Deflater.DEFLATED,      // compression method
+            0,                      // flags
+            0, 0, 0, 0,             // modification time
+            0,                      // extra flags
+            (byte) 0xff             // OS: unknown
+    };
+
+    private final WritableByteChannel target;
+    private final OrderedBlockWriter<ByteBuffer> members;
+    private ByteBuffer chunk = ByteBuffer.allocate(Constants.GZIP_CHUNK_SIZE);
+    private boolean empty = true;
+    private boolean open = true;
+
+    public ParallelGzipChannel(WritableByteChannel target, int threads) {
+        this.target = target;
+        this.members = new OrderedBlockWriter<>(this::writeMember, threads);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            int length = Math.min(src.remaining(), chunk.remaining());
+            chunk.put(chunk.position(), src, src.position(), length);
+            chunk.position(chunk.position() + length);
+            src.position(src.position() + length);
+
+            if (!chunk.hasRemaining()) {
+                submitChunk();
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+
+        try (target; members) {
+            // An empty dump is still written as one (empty) gzip member
+            if (chunk.position() > 0 || empty) {
+                submitChunk();
+            }
+            members.flush();
+        }
+    }
+
+    private void submitChunk() throws IOException {
+        ByteBuffer data = chunk.flip();
+        chunk = ByteBuffer.allocate(Constants.GZIP_CHUNK_SIZE);
+        empty = false;
+        members.submit(() -> compress(data));
+    }
+
+    private void writeMember(ByteBuffer member) throws IOException {
+        while (member.hasRemaining()) {
+            target.write(member);
+        }
+    }
+
+    private static ByteBuffer compress(ByteBuffer data) {
+        int size = data.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        ByteArrayOutputStream member = new ByteArrayOutputStream(size / 3 + 64);
+        member.writeBytes(GZIP_HEADER);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Constants.WRITE_BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                member.write(buffer, 0, length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        writeIntLE(member, (int) crc.getValue());
+        writeIntLE(member, size);
+        return ByteBuffer.wrap(member.toByteArray());
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
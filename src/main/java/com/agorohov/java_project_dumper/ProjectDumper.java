@@ -0,0 +1,193 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Library entry point: dumps a project in-process and passes every file block to a DumpSink,
+// nothing is written to disk. Options are the ones of the command line, validated by build().
+//
+//     DumpStats stats = ProjectDumper.builder(Path.of("."))
+//             .maxFileLines(500)
+//             .ignoreRules(List.of("*.md"))
+//             .build()
+//             .dump((path, kind, content) -> ...);
+public final class ProjectDumper {
+
+    private final Config config;
+    private final List<String> ignoreRules;
+    private final IgnoreMatcher ignoreMatcher;
+
+    private ProjectDumper(Config config, List<String> ignoreRules, IgnoreMatcher ignoreMatcher) {
+        this.config = config;
+        this.ignoreRules = ignoreRules;
+        this.ignoreMatcher = ignoreMatcher;
+    }
+
+    // root - a project directory or a zip, jar or tar archive
+    public static Builder builder(Path root) {
+        return new Builder(root);
+    }
+
+    // May be called again, every call walks the project anew
+    public DumpStats dump(DumpSink sink) throws IOException {
+        IgnoreMatcher matcher = ignoreMatcher != null
+                ? ignoreMatcher
+                : IgnoreLoader.loadIgnoreMatcher(config.getRootPath(), config.isGitignoreApplied(), ignoreRules);
+        DumpStats stats = FileDumper.dumpTo(config, matcher, new SinkFormatter(sink));
+        sink.finish(stats);
+        return stats;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public static final class Builder {
+
+        private final Config config = new Config();
+        private final List<String> ignoreRules = new ArrayList<>();
+        private IgnoreMatcher ignoreMatcher = null;
+        private boolean built = false;
+
+        private Builder(Path root) {
+            config.setRootPath(root);
+        }
+
+        public Builder maxFileSizeBytes(long maxFileSizeBytes) {
+            config.setMaxFileSizeBytes(maxFileSizeBytes);
+            return this;
+        }
+
+        public Builder maxFileLines(int maxFileLines) {
+            config.setMaxFileLines(maxFileLines);
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            config.setThreads(threads);
+            return this;
+        }
+
+        public Builder sample(int headLines, int tailLines) {
+            config.setSampleHeadLines(headLines);
+            config.setSampleTailLines(tailLines);
+            return this;
+        }
+
+        public Builder compact(Set<Compaction> compactions) {
+            config.setCompactions(Set.copyOf(compactions));
+            return this;
+        }
+
+        public Builder outline(boolean outline) {
+            config.setOutline(outline);
+            return this;
+        }
+
+        public Builder useGitignore(boolean useGitignore) {
+            config.setUseGitignore(useGitignore);
+            return this;
+        }
+
+        public Builder deduplicated(boolean deduplicated) {
+            config.setDeduplicated(deduplicated);
+            return this;
+        }
+
+        // Extensions as in --text-ext: case insensitive, a leading dot is allowed
+        public Builder textExtensions(Collection<String> extensions) {
+            config.setTextExtensions(Set.copyOf(ArgumentParser.parseExtensions(String.join(",", extensions))));
+            return this;
+        }
+
+        public Builder binaryExtensions(Collection<String> extensions) {
+            config.setBinaryExtensions(Set.copyOf(ArgumentParser.parseExtensions(String.join(",", extensions))));
+            return this;
+        }
+
+        public Builder include(Collection<String> globs) {
+            List<String> includeGlobs = new ArrayList<>();
+            for (String glob : globs) {
+                includeGlobs.add(ArgumentParser.parseGlob(glob));
+            }
+            config.setIncludeGlobs(List.copyOf(includeGlobs));
+            return this;
+        }
+
+        // Files staged in the git index, like --source=git-index
+        public Builder gitIndex() {
+            return source(SourceType.GIT_INDEX, null, null);
+        }
+
+        public Builder gitRef(String ref) {
+            return source(SourceType.GIT_REF, null, ref);
+        }
+
+        public Builder changedSince(String baseRef) {
+            return source(SourceType.GIT_CHANGED, baseRef, null);
+        }
+
+        public Builder diff(String baseRef, String ref) {
+            return source(SourceType.GIT_DIFF, baseRef, ref);
+        }
+
+        // Lines in the .gitignore syntax, applied after the ignore files of the project
+        public Builder ignoreRules(Collection<String> rules) {
+            ignoreRules.addAll(rules);
+            return this;
+        }
+
+        // Replaces the ignore files of the project and the rules above
+        public Builder ignoreMatcher(IgnoreMatcher ignoreMatcher) {
+            this.ignoreMatcher = ignoreMatcher;
+            return this;
+        }
+
+        // Throws IllegalArgumentException for invalid options, like the command line
+        public ProjectDumper build() {
+            if (built) {
+                throw new IllegalStateException("ProjectDumper is already built by this builder");
+            }
+            config.validateForSink();
+            built = true;
+            return new ProjectDumper(config, List.copyOf(ignoreRules), ignoreMatcher);
+        }
+
+        private Builder source(SourceType sourceType, String baseRef, String ref) {
+            if ((baseRef != null && baseRef.isEmpty()) || (ref != null && ref.isEmpty())) {
+                throw new IllegalArgumentException("git revision must not be empty");
+            }
+            config.setSourceType(sourceType);
+            config.setGitBaseRef(baseRef);
+            config.setGitRef(ref);
+            return this;
+        }
+    }
+
+    // Blocks go to the sink instead of the writer, there is no header or footer
+    private record SinkFormatter(DumpSink sink) implements DumpFormatter {
+
+        @Override
+        public void writeHeader(DumpWriter writer, String title) {
+        }
+
+        @Override
+        public void writeBlock(DumpWriter writer, String path, BlockKind kind, byte[] body) throws IOException {
+            sink.accept(path, kind, ByteBuffer.wrap(body).asReadOnlyBuffer());
+        }
+
+        @Override
+        public void writeDuplicate(DumpWriter writer, String path, String originalPath) throws IOException {
+            sink.duplicate(path, originalPath);
+        }
+
+        @Override
+        public void writeFooter(DumpWriter writer, DumpStats stats) {
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.agorohov.java_project_dumper;
 
-import org.eclipse.jgit.ignore.IgnoreNode;
-
 import java.io.IOException;
+import java.nio.file.Files;
 
 public final class ProjectDumperApp {
 
@@ -12,16 +11,63 @@ public final class ProjectDumperApp {
     public static void execute(String[] args) {
         try {
             Config config = parseArguments(args);
-            checkRunMode(config);
+            if (config.isStdoutOutput()) {
+                // stdout carries the dump, the messages and logs go to stderr
+                System.setOut(System.err);
+            }
             LoggingConfigurator.configure(config.isDebug());
-            IgnoreNode ignoreNode = loadIgnoreRules(config);
-            DumpStats stats = dumpProject(config, ignoreNode);
-            ConsolePrinter.printSuccess(config, stats);
+            checkRunMode(config);
+            FlightRecording recording = startRecording(config);
+            try {
+                run(config);
+            } catch (Exception e) {
+                closeRecording(recording);
+                throw e;
+            }
+            // The dump server keeps running on its own threads after serve() returns and stops with the JVM,
+            // its recording is written on exit (see FlightRecording)
+            if (config.getRunMode() != RunMode.SERVE) {
+                closeRecording(recording);
+            }
         } catch (Exception e) {
             ConsolePrinter.handleError(e);
         }
     }
 
+    private static void run(Config config) throws IOException {
+        if (config.getRunMode() == RunMode.WATCH) {
+            DumpWatcher.watch(config);
+            return;
+        }
+        if (config.getRunMode() == RunMode.SERVE) {
+            DumpServer.serve(config);
+            return;
+        }
+        if (config.getRunMode() == RunMode.BATCH) {
+            BatchDumper.dumpAll(config);
+            return;
+        }
+        if (config.getRunMode() == RunMode.EXTRACT) {
+            DumpExtractor.extract(config);
+            return;
+        }
+        IgnoreMatcher ignoreMatcher = loadIgnoreRules(config);
+        DumpStats stats = dumpProject(config, ignoreMatcher);
+        writeMetrics(config, stats);
+        ConsolePrinter.printSuccess(config, stats);
+    }
+
+    // null without --jfr
+    private static FlightRecording startRecording(Config config) throws IOException {
+        return config.getJfrPath() != null ? FlightRecording.start(config.getJfrPath()) : null;
+    }
+
+    private static void closeRecording(FlightRecording recording) {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
     private static Config parseArguments(String[] args) {
         return ArgumentParser.parse(args);
     }
@@ -34,11 +80,17 @@ public final class ProjectDumperApp {
         }
     }
 
-    private static IgnoreNode loadIgnoreRules(Config config) throws IOException {
-        return IgnoreLoader.loadIgnoreNode(config.getRootPath(), config.isUseGitignore());
+    private static IgnoreMatcher loadIgnoreRules(Config config) throws IOException {
+        return IgnoreLoader.loadIgnoreMatcher(config.getRootPath(), config.isGitignoreApplied());
+    }
+
+    private static DumpStats dumpProject(Config config, IgnoreMatcher ignoreMatcher) throws IOException {
+        return FileDumper.dump(config, ignoreMatcher);
     }
 
-    private static DumpStats dumpProject(Config config, IgnoreNode ignoreNode) throws IOException {
-        return FileDumper.dump(config, ignoreNode);
+    private static void writeMetrics(Config config, DumpStats stats) throws IOException {
+        if (config.getMetricsPath() != null) {
+            Files.writeString(config.getMetricsPath(), stats.toJson());
+        }
     }
 }
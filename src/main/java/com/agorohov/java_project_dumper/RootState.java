@@ -0,0 +1,78 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Warm state of one project root kept by the dump server between requests: compiled ignore rules
+// and the fingerprints of the incremental cache. Everything is checked against the file it came from
+// before use, so edits of the ignore files or the dump are picked up.
+public final class RootState implements DumpCache.EntryStore {
+
+    private record CachedRules(String stamp, IgnoreRules rules) {
+    }
+
+    private record CachedEntries(String stamp, Map<String, DumpCache.Entry> entries) {
+    }
+
+    private final Path rootPath;
+    private final Map<Path, CachedRules> nestedRules = new ConcurrentHashMap<>();
+    private final Map<Path, CachedEntries> entries = new ConcurrentHashMap<>();
+    private IgnoreMatcher rootMatcher;
+    private String rootStamp;
+
+    public RootState(Path rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    public synchronized IgnoreMatcher ignoreMatcher(boolean useGitignore) throws IOException {
+        String stamp = useGitignore + ":" + fileStamp(rootPath.resolve(Constants.GITIGNORE_FILENAME))
+                + ":" + fileStamp(rootPath.resolve(Constants.IGNORE_FILENAME));
+        if (rootMatcher == null || !stamp.equals(rootStamp)) {
+            rootMatcher = IgnoreLoader.loadIgnoreMatcher(rootPath, useGitignore, this::loadNestedGitignore);
+            rootStamp = stamp;
+        }
+        return rootMatcher;
+    }
+
+    @Override
+    public Map<String, DumpCache.Entry> get(Path cachePath, String stamp) {
+        CachedEntries cached = entries.get(cachePath);
+        return cached != null && cached.stamp().equals(stamp) ? cached.entries() : null;
+    }
+
+    @Override
+    public void put(Path cachePath, String stamp, Map<String, DumpCache.Entry> entries) {
+        if (stamp != null) {
+            this.entries.put(cachePath, new CachedEntries(stamp, entries));
+        }
+    }
+
+    // One stat instead of reading and compiling the file again
+    private IgnoreRules loadNestedGitignore(Path dir, String dirPath) {
+        Path gitIgnore = dir.resolve(Constants.GITIGNORE_FILENAME);
+        String stamp = fileStamp(gitIgnore);
+        CachedRules cached = nestedRules.get(gitIgnore);
+        if (cached != null && cached.stamp().equals(stamp)) {
+            return cached.rules();
+        }
+        IgnoreRules rules = IgnoreLoader.loadNestedGitignore(dir, dirPath);
+        nestedRules.put(gitIgnore, new CachedRules(stamp, rules));
+        return rules;
+    }
+
+    private static String fileStamp(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.size() + "@" + attrs.lastModifiedTime();
+        } catch (NoSuchFileException e) {
+            return "-";
+        } catch (IOException e) {
+            return "?" + System.nanoTime();     // unreadable, never matches
+        }
+    }
+}
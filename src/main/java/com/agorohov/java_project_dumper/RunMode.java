@@ -2,6 +2,10 @@ package com.agorohov.java_project_dumper;
 
 public enum RunMode {
     DUMP,
+    BATCH,
+    WATCH,
+    SERVE,
+    EXTRACT,
     SHOW_HELP,
     SHOW_DEFAULT_IGNORE
 }
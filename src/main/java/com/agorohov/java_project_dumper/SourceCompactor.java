@@ -0,0 +1,514 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Streaming Java/Kotlin lexer of --compact and --outline. The bytes go through a state machine that knows comments,
+// strings, char literals, text blocks, raw strings and ${...} templates, so slashes and braces inside them are never
+// taken for code. The output is collected one line at a time and the line is dropped or written at its end,
+// no tree is built and nothing else is buffered.
+// Outline keeps type bodies and replaces every other body (methods, initializers, field values) with { ... }:
+// a '{' opens a type body only if its declaration has class, interface, enum or record followed by a name,
+// or a Kotlin object.
+public final class SourceCompactor {
+
+    private enum State {
+        CODE,
+        LINE_COMMENT,
+        BLOCK_COMMENT,
+        STRING,
+        CHAR,
+        TEXT_BLOCK
+    }
+
+    private static final byte[] IMPORT = ascii("import");
+    private static final byte[][] TYPE_KEYWORDS = {ascii("class"), ascii("interface"), ascii("enum"), ascii("record")};
+    private static final byte[] OBJECT = ascii("object");
+    // Kotlin has no semicolons, these start a member after a type declaration without a body
+    private static final byte[][] MEMBER_KEYWORDS = {ascii("fun"), ascii("val"), ascii("var"), ascii("init"),
+            ascii("constructor")};
+    private static final byte[] SKIPPED_BODY_END = ascii(" ... }");
+    private static final byte[] EMPTY_BODY_END = ascii("}");
+    private static final byte[] CUT_BODY_END = ascii(" ...");
+    private static final byte[] LF = ascii("\n");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] LINE_SEPARATOR = ascii(System.lineSeparator());
+
+    private final boolean dropComments;
+    private final boolean dropBlank;
+    private final boolean dropImports;
+    private final boolean outline;
+    private final boolean kotlin;
+    private final DetectedCharset charset;
+    private final DumpWriter writer;
+
+    private State state = State.CODE;
+    private boolean slashPending;           // '/' in code, the next byte may start a comment
+    private boolean starPending;            // '*' in a block comment, the next '/' ends it
+    private boolean commentSlash;           // '/' in a Kotlin block comment, the next '*' nests another one
+    private int commentDepth;
+    private boolean escaped;
+    private int quotes;                     // quotes of a string opening so far, or of a text block closing
+    private boolean dollarPending;
+    private State templateReturn;           // literal around the current Kotlin ${...} template, null outside
+    private int templateBraces;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lineRemoved;            // a comment or a body was cut out of the line
+    private boolean lineKept;               // the line ends inside a text block, it is content
+    private boolean lineHasToken;
+    private boolean lineIsImport;
+
+    private final byte[] word = new byte[16];     // longer words are not keywords
+    private int wordLength;
+    private byte beforeWord;
+    private byte lastCode = '\n';
+
+    private boolean typeKeyword;
+    private boolean typeDeclaration;
+    private int parenDepth;
+    private int skipDepth;
+    private boolean skippedCode;
+
+    private long inputBytes;
+    private long outputBytes;
+
+    public SourceCompactor(Config config, String path, DetectedCharset charset, DumpWriter writer) {
+        this.outline = config.isOutline();
+        this.dropComments = outline || config.getCompactions().contains(Compaction.COMMENTS);
+        this.dropBlank = outline || config.getCompactions().contains(Compaction.BLANK);
+        this.dropImports = config.getCompactions().contains(Compaction.IMPORTS);
+        this.kotlin = path.endsWith(".kt") || path.endsWith(".kts");
+        this.charset = charset;
+        this.writer = writer;
+    }
+
+    public static boolean supports(String path) {
+        return path.endsWith(".java") || path.endsWith(".kt") || path.endsWith(".kts");
+    }
+
+    // Bytes of the source minus bytes written, in the charset of the source
+    public long getSavedBytes() {
+        return inputBytes - outputBytes;
+    }
+
+    public void feed(byte[] data, int offset, int length) throws IOException {
+        inputBytes += length;
+        for (int i = offset; i < offset + length; i++) {
+            accept(data[i]);
+        }
+    }
+
+    // The end of the source or of its part within the limits, writes the last line
+    public void finish() throws IOException {
+        if (slashPending && state == State.CODE) {
+            slashPending = false;
+            code((byte) '/');
+        }
+        endWord((byte) '\n');
+        if (skipDepth > 0) {
+            skipDepth = 0;
+            append(CUT_BODY_END);
+        }
+        endLine(false);
+    }
+
+    private void accept(byte b) throws IOException {
+        switch (state) {
+            case CODE -> {
+                if (slashPending) {
+                    slashPending = false;
+                    if (b == '/' || b == '*') {
+                        startComment(b == '/' ? State.LINE_COMMENT : State.BLOCK_COMMENT);
+                        return;
+                    }
+                    code((byte) '/');
+                }
+                if (b == '/') {
+                    endWord(b);
+                    slashPending = true;
+                } else {
+                    code(b);
+                }
+            }
+            case LINE_COMMENT -> lineComment(b);
+            case BLOCK_COMMENT -> blockComment(b);
+            case STRING -> string(b);
+            case CHAR -> charLiteral(b);
+            case TEXT_BLOCK -> textBlock(b);
+        }
+    }
+
+    private void code(byte b) throws IOException {
+        if (isWordByte(b)) {
+            if (wordLength == 0) {
+                beforeWord = lastCode;
+            }
+            if (wordLength < word.length) {
+                word[wordLength] = b;
+            }
+            wordLength++;
+            append(b);
+            return;
+        }
+        endWord(b);
+
+        switch (b) {
+            case '\n' -> {
+                newLine();
+                return;
+            }
+            case '{' -> {
+                openBrace();
+                return;
+            }
+            case '}' -> {
+                closeBrace();
+                return;
+            }
+            case '"' -> {
+                state = State.STRING;
+                quotes = 1;
+            }
+            case '\'' -> state = State.CHAR;
+            case ';' -> endDeclaration();
+            case '(' -> parenDepth++;
+            case ')' -> parenDepth = Math.max(0, parenDepth - 1);
+            default -> {
+                // other punctuation
+            }
+        }
+        if (b != ' ' && b != '\t' && b != '\r' && b != '\f') {
+            lastCode = b;
+            typeKeyword = false;
+            lineHasToken = true;
+            if (skipDepth > 0) {
+                skippedCode = true;
+            }
+        }
+        append(b);
+    }
+
+    private void openBrace() throws IOException {
+        if (templateReturn != null) {
+            templateBraces++;
+            append((byte) '{');
+        } else if (skipDepth > 0) {
+            skipDepth++;
+            skippedCode = true;
+        } else {
+            append((byte) '{');
+            if (outline && !typeDeclaration) {
+                skipDepth = 1;
+                skippedCode = false;
+                lineRemoved = true;
+            }
+            endDeclaration();
+            lastCode = '{';
+            lineHasToken = true;
+        }
+    }
+
+    private void closeBrace() throws IOException {
+        if (templateReturn != null) {
+            append((byte) '}');
+            if (templateBraces == 0) {
+                state = templateReturn;
+                templateReturn = null;
+                quotes = 0;
+            } else {
+                templateBraces--;
+            }
+        } else if (skipDepth > 0) {
+            if (--skipDepth == 0) {
+                append(skippedCode ? SKIPPED_BODY_END : EMPTY_BODY_END);
+            }
+        } else {
+            append((byte) '}');
+            endDeclaration();
+            lastCode = '}';
+            lineHasToken = true;
+        }
+    }
+
+    private void startComment(State commentState) throws IOException {
+        state = commentState;
+        commentDepth = 1;
+        starPending = false;
+        commentSlash = false;
+        if (dropComments) {
+            lineRemoved = true;
+        } else {
+            append((byte) '/');
+            append(commentState == State.LINE_COMMENT ? (byte) '/' : (byte) '*');
+        }
+    }
+
+    private void lineComment(byte b) throws IOException {
+        if (b == '\n') {
+            state = State.CODE;
+            code(b);
+        } else if (b == '\r' || !dropComments) {
+            append(b);          // \r belongs to the line end
+        }
+    }
+
+    private void blockComment(byte b) throws IOException {
+        if (b == '\n') {
+            starPending = false;
+            commentSlash = false;
+            if (!dropComments) {
+                newLine();
+            }
+            return;
+        }
+        if (!dropComments) {
+            append(b);
+        }
+        if (starPending && b == '/') {
+            starPending = false;
+            if (--commentDepth == 0) {
+                state = State.CODE;
+            }
+        } else if (kotlin && commentSlash && b == '*') {
+            commentDepth++;
+            commentSlash = false;
+        } else {
+            starPending = b == '*';
+            commentSlash = b == '/';
+        }
+    }
+
+    private void string(byte b) throws IOException {
+        if (quotes == 1 && b == '"') {
+            quotes = 2;             // "" so far, an empty string or a text block
+            append(b);
+            return;
+        }
+        if (quotes == 2) {
+            quotes = 0;
+            if (b == '"') {
+                state = State.TEXT_BLOCK;
+                append(b);
+            } else {
+                state = State.CODE;
+                accept(b);
+            }
+            return;
+        }
+        quotes = 0;
+        if (literalByte(b)) {
+            return;
+        }
+        if (b == '"') {
+            state = State.CODE;
+            lastCode = b;
+            append(b);
+        } else if (b == '\n') {
+            state = State.CODE;     // not closed, Java and Kotlin strings end with the line
+            code(b);
+        } else {
+            append(b);
+        }
+    }
+
+    private void textBlock(byte b) throws IOException {
+        if (literalByte(b)) {
+            quotes = 0;
+            return;
+        }
+        if (b == '"') {
+            append(b);
+            if (++quotes == 3) {
+                quotes = 0;
+                state = State.CODE;
+                lastCode = b;
+            }
+            return;
+        }
+        quotes = 0;
+        if (b == '\n') {
+            lineKept = true;
+            newLine();
+        } else {
+            append(b);
+        }
+    }
+
+    private void charLiteral(byte b) throws IOException {
+        if (literalByte(b)) {
+            return;
+        }
+        if (b == '\'') {
+            state = State.CODE;
+            lastCode = b;
+            append(b);
+        } else if (b == '\n') {
+            state = State.CODE;
+            code(b);
+        } else {
+            append(b);
+        }
+    }
+
+    // Escapes and Kotlin templates inside a literal, true if the byte was taken
+    private boolean literalByte(byte b) throws IOException {
+        if (escaped) {
+            escaped = false;
+            append(b);
+            return true;
+        }
+        if (b == '\\' && !(kotlin && state == State.TEXT_BLOCK)) {
+            escaped = true;
+            dollarPending = false;
+            append(b);
+            return true;
+        }
+        if (kotlin && state != State.CHAR) {
+            if (dollarPending && b == '{') {
+                dollarPending = false;
+                templateReturn = state;
+                templateBraces = 0;
+                state = State.CODE;
+                append(b);
+                return true;
+            }
+            dollarPending = b == '$';
+        }
+        return false;
+    }
+
+    private void endWord(byte terminator) {
+        if (wordLength == 0) {
+            return;
+        }
+        int length = wordLength;
+        wordLength = 0;
+        if (skipDepth > 0) {
+            skippedCode = true;
+            return;
+        }
+        if (templateReturn != null) {
+            return;
+        }
+        boolean first = !lineHasToken;
+        lineHasToken = true;
+        lastCode = 'a';
+        if (dropImports && first && (terminator == ' ' || terminator == '\t') && isWord(IMPORT, length)) {
+            lineIsImport = true;
+        }
+        if (!outline) {
+            return;
+        }
+
+        if (typeKeyword) {
+            typeKeyword = false;
+            if (!Character.isDigit(word[0])) {
+                typeDeclaration = true;
+            }
+        }
+        if (beforeWord != '.' && beforeWord != ':' && isAnyWord(TYPE_KEYWORDS, length)) {
+            typeKeyword = true;
+        } else if (kotlin && isWord(OBJECT, length)) {
+            typeDeclaration = true;
+        } else if (kotlin && parenDepth == 0 && isAnyWord(MEMBER_KEYWORDS, length)) {
+            typeDeclaration = false;
+        }
+    }
+
+    private void endDeclaration() {
+        typeKeyword = false;
+        typeDeclaration = false;
+        parenDepth = 0;
+    }
+
+    private void newLine() throws IOException {
+        if (skipDepth == 0) {
+            endLine(true);
+        }
+    }
+
+    private void endLine(boolean newline) throws IOException {
+        boolean crlf = lineLength > 0 && line[lineLength - 1] == '\r';
+        int length = crlf ? lineLength - 1 : lineLength;
+        boolean blank = trimmedLength(length) == 0;
+        boolean drop = lineIsImport || (!lineKept && blank && (dropBlank || lineRemoved));
+        if (!drop) {
+            if (lineRemoved && !lineKept) {
+                length = trimmedLength(length);
+            }
+            write(line, length);
+            if (newline) {
+                write(crlf ? CRLF : LF, crlf ? 2 : 1);
+            } else if (length > 0) {
+                write(LINE_SEPARATOR, LINE_SEPARATOR.length);
+            }
+        }
+        lineLength = 0;
+        lineRemoved = false;
+        lineKept = false;
+        lineHasToken = false;
+        lineIsImport = false;
+    }
+
+    private int trimmedLength(int length) {
+        while (length > 0 && (line[length - 1] == ' ' || line[length - 1] == '\t' || line[length - 1] == '\f')) {
+            length--;
+        }
+        return length;
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        ContentCopier.writeBytes(bytes, 0, length, charset, writer);
+        outputBytes += length;
+    }
+
+    // Bytes of skipped bodies are not kept
+    private void append(byte b) {
+        if (skipDepth > 0) {
+            return;
+        }
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        for (byte b : bytes) {
+            append(b);
+        }
+    }
+
+    private boolean isWord(byte[] keyword, int length) {
+        if (length != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word[i] != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAnyWord(byte[][] keywords, int length) {
+        for (byte[] keyword : keywords) {
+            if (isWord(keyword, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '_' || b == '$' || b < 0;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,19 @@
+package com.agorohov.java_project_dumper;
+
+public enum SourceType {
+    FILESYSTEM("filesystem"),
+    GIT_INDEX("git-index"),
+    GIT_REF("git-ref"),
+    GIT_CHANGED("git-changed"),
+    GIT_DIFF("git-diff");
+
+    private final String value;
+
+    SourceType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
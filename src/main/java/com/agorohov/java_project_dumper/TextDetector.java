@@ -0,0 +1,215 @@
+package com.agorohov.java_project_dumper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Text or binary decision on the first bytes of a file, and the charset to read it in.
+// One pass over the sample reads 8 bytes at a time as a long (SWAR): control bytes of the word are counted with
+// a few arithmetic operations, ASCII and two-byte UTF-8 sequences are validated per word, and only words with
+// longer sequences or errors go through the UTF-8 validating automaton byte by byte.
+public final class TextDetector {
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long ONES = 0x0101010101010101L;
+
+    // UTF-8 automaton states, the transitions reject overlong forms, surrogates and code points above U+10FFFF
+    private static final int ACCEPT = 0;
+    private static final int REJECT = 1;
+    private static final int NEED_1 = 2;
+    private static final int NEED_2 = 3;
+    private static final int NEED_3 = 4;
+    private static final int AFTER_E0 = 5;      // A0-BF
+    private static final int AFTER_ED = 6;      // 80-9F
+    private static final int AFTER_F0 = 7;      // 90-BF
+    private static final int AFTER_F4 = 8;      // 80-8F
+    private static final byte[] TRANSITIONS = buildTransitions();
+
+    private TextDetector() {}
+
+    public static boolean isTextFile(ByteBuffer buffer) {
+        return detect(buffer) != DetectedCharset.BINARY;
+    }
+
+    public static DetectedCharset detect(ByteBuffer buffer) {
+        int sampleSize = Math.min(buffer.remaining(), Constants.SAMPLE_SIZE);
+        if (sampleSize == 0) {
+            return DetectedCharset.UTF_8;
+        }
+
+        byte[] sample = buffer.array();
+        DetectedCharset bomCharset = bomCharset(sample, sampleSize);
+        if (bomCharset != null) {
+            return bomCharset;
+        }
+
+        int nonTextCount = 0;
+        int state = ACCEPT;
+        int i = 0;
+        for (; i + Long.BYTES <= sampleSize; i += Long.BYTES) {
+            long word = (long) LONG_VIEW.get(sample, i);
+            nonTextCount += countNonText(word);
+            if (state == REJECT || (state == ACCEPT && (word & HIGH_BITS) == 0)) {
+                continue;
+            }
+            int next = twoByteState(word, state);
+            if (next != REJECT) {
+                state = next;
+                continue;
+            }
+            for (int j = i; j < i + Long.BYTES; j++) {
+                state = TRANSITIONS[(state << 8) | (sample[j] & 0xFF)];
+            }
+        }
+        for (; i < sampleSize; i++) {
+            int b = sample[i] & 0xFF;
+            if (b < 9 || (b > 13 && b < 32) || b == 127) {
+                nonTextCount++;
+            }
+            state = TRANSITIONS[(state << 8) | b];
+        }
+
+        // If most that 5-10% "bad" bytes - it's binary file
+        double badRatio = (double) nonTextCount / sampleSize;
+        if (badRatio > Constants.BAD_BYTES_LIMIT) {
+            return DetectedCharset.BINARY;
+        }
+        return utf8OrLatin1(state, buffer);
+    }
+
+    // Charset of a file that is text by its extension: control bytes are not counted, an ASCII word costs
+    // a NUL test and one AND. A NUL byte means the extension is wrong about this file, it gets the full detection.
+    public static DetectedCharset detectText(ByteBuffer buffer) {
+        int sampleSize = Math.min(buffer.remaining(), Constants.SAMPLE_SIZE);
+        byte[] sample = buffer.array();
+        DetectedCharset bomCharset = bomCharset(sample, sampleSize);
+        if (bomCharset != null) {
+            return bomCharset;
+        }
+
+        int state = ACCEPT;
+        int i = 0;
+        for (; i + Long.BYTES <= sampleSize; i += Long.BYTES) {
+            long word = (long) LONG_VIEW.get(sample, i);
+            if (((word - ONES) & ~word & HIGH_BITS) != 0) {
+                return detect(buffer);
+            }
+            if (state == REJECT || (state == ACCEPT && (word & HIGH_BITS) == 0)) {
+                continue;
+            }
+            int next = twoByteState(word, state);
+            if (next != REJECT) {
+                state = next;
+                continue;
+            }
+            for (int j = i; j < i + Long.BYTES; j++) {
+                state = TRANSITIONS[(state << 8) | (sample[j] & 0xFF)];
+            }
+        }
+        for (; i < sampleSize; i++) {
+            if (sample[i] == 0) {
+                return detect(buffer);
+            }
+            state = TRANSITIONS[(state << 8) | (sample[i] & 0xFF)];
+        }
+        return utf8OrLatin1(state, buffer);
+    }
+
+    private static DetectedCharset bomCharset(byte[] sample, int sampleSize) {
+        if (sampleSize >= 2) {
+            if ((sample[0] & 0xFF) == 0xFE && (sample[1] & 0xFF) == 0xFF) {
+                return DetectedCharset.UTF_16BE;
+            }
+            if ((sample[0] & 0xFF) == 0xFF && (sample[1] & 0xFF) == 0xFE) {
+                return DetectedCharset.UTF_16LE;
+            }
+        }
+        return null;
+    }
+
+    // A sequence cut by the end of the sample is fine, cut by the end of the file is not
+    private static DetectedCharset utf8OrLatin1(int state, ByteBuffer buffer) {
+        boolean cut = buffer.remaining() > Constants.SAMPLE_SIZE;
+        return state == ACCEPT || (state != REJECT && cut) ? DetectedCharset.UTF_8 : DetectedCharset.LATIN_1;
+    }
+
+    // Bytes below 32 or equal to 127, except \t, \n, \v, \f and \r (9-13). The high bits are cleared first,
+    // so adding a constant never carries into the next byte; bytes of 128 and above are masked out at the end.
+    private static int countNonText(long word) {
+        long ascii = ~word & HIGH_BITS;
+        long low = word & LOW_BITS;
+        long below32 = ~(low + 0x6060606060606060L) & HIGH_BITS;
+        long atLeast9 = (low + 0x7777777777777777L) & HIGH_BITS;
+        long below14 = ~(low + 0x7272727272727272L) & HIGH_BITS;
+        long del = low ^ LOW_BITS;
+        long isDel = ~((del + LOW_BITS) | del | LOW_BITS);
+        return Long.bitCount((below32 & ~(atLeast9 & below14) | isDel) & ascii);
+    }
+
+    // State after a word of ASCII and two-byte sequences (Latin accents, Cyrillic, Greek...) checked at once:
+    // every continuation byte must follow a C2-DF lead byte. REJECT when the word needs the automaton.
+    private static int twoByteState(long word, int state) {
+        if (state != ACCEPT && state != NEED_1) {
+            return REJECT;
+        }
+        long high = word & HIGH_BITS;
+        long bit6 = (word << 1) & HIGH_BITS;
+        long bit5 = (word << 2) & HIGH_BITS;
+        long notC0C1 = ((word & 0x1E1E1E1E1E1E1E1EL) + LOW_BITS) & HIGH_BITS;
+        long continuation = high & ~bit6;
+        long lead = high & bit6 & ~bit5 & notC0C1;
+        if ((high & ~continuation & ~lead) != 0) {
+            return REJECT;
+        }
+        long expected = (lead << 8) | (state == NEED_1 ? 0x80L : 0);
+        if (continuation != expected) {
+            return REJECT;
+        }
+        return lead < 0 ? NEED_1 : ACCEPT;
+    }
+
+    private static byte[] buildTransitions() {
+        byte[] transitions = new byte[9 << 8];
+        Arrays.fill(transitions, (byte) REJECT);
+        for (int b = 0; b < 0x80; b++) {
+            transitions[(ACCEPT << 8) | b] = ACCEPT;
+        }
+        for (int b = 0xC2; b <= 0xDF; b++) {
+            transitions[(ACCEPT << 8) | b] = NEED_1;
+        }
+        for (int b = 0xE1; b <= 0xEF; b++) {
+            transitions[(ACCEPT << 8) | b] = NEED_2;
+        }
+        transitions[(ACCEPT << 8) | 0xE0] = AFTER_E0;
+        transitions[(ACCEPT << 8) | 0xED] = AFTER_ED;
+        for (int b = 0xF1; b <= 0xF3; b++) {
+            transitions[(ACCEPT << 8) | b] = NEED_3;
+        }
+        transitions[(ACCEPT << 8) | 0xF0] = AFTER_F0;
+        transitions[(ACCEPT << 8) | 0xF4] = AFTER_F4;
+
+        for (int b = 0x80; b <= 0xBF; b++) {
+            transitions[(NEED_1 << 8) | b] = ACCEPT;
+            transitions[(NEED_2 << 8) | b] = NEED_1;
+            transitions[(NEED_3 << 8) | b] = NEED_2;
+            if (b >= 0xA0) {
+                transitions[(AFTER_E0 << 8) | b] = NEED_1;
+            }
+            if (b <= 0x9F) {
+                transitions[(AFTER_ED << 8) | b] = NEED_1;
+            }
+            if (b >= 0x90) {
+                transitions[(AFTER_F0 << 8) | b] = NEED_2;
+            }
+            if (b <= 0x8F) {
+                transitions[(AFTER_F4 << 8) | b] = NEED_2;
+            }
+        }
+        return transitions;
+    }
+}
@@ -0,0 +1,44 @@
+package com.agorohov.java_project_dumper;
+
+import java.io.IOException;
+
+// The default format: <<<FILE: path>>> blocks between a header and a footer with the stats.
+// Text blocks are also streamed straight from the files by FileDumper, without this formatter.
+public final class TextFormatter implements DumpFormatter {
+
+    public static final TextFormatter INSTANCE = new TextFormatter();
+
+    public static final String BLOCK_END = "<<<END FILE>>>" + System.lineSeparator() + System.lineSeparator();
+
+    private TextFormatter() {}
+
+    public static String blockStart(String path) {
+        return "<<<FILE: " + path + ">>>" + System.lineSeparator();
+    }
+
+    public static String sameAs(String originalPath) {
+        return "<<<SAME AS: " + originalPath + ">>>" + System.lineSeparator();
+    }
+
+    @Override
+    public void writeHeader(DumpWriter writer, String title) throws IOException {
+        FileDumper.writeHeader(writer, title);
+    }
+
+    @Override
+    public void writeBlock(DumpWriter writer, String path, BlockKind kind, byte[] body) throws IOException {
+        writer.write(blockStart(path));
+        writer.write(body);
+        writer.write(BLOCK_END);
+    }
+
+    @Override
+    public void writeDuplicate(DumpWriter writer, String path, String originalPath) throws IOException {
+        writer.write(blockStart(path) + sameAs(originalPath) + BLOCK_END);
+    }
+
+    @Override
+    public void writeFooter(DumpWriter writer, DumpStats stats) throws IOException {
+        FileDumper.writeFooter(writer, stats);
+    }
+}
@@ -0,0 +1,7 @@
+package com.agorohov.java_project_dumper;
+
+public enum Truncation {
+    NONE,
+    SIZE,
+    LINES
+}
@@ -0,0 +1,334 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Tar streams are parsed by ArchiveSource itself: ustar prefixes, GNU long names, pax records and base-256 sizes
+class ArchiveSourceTest {
+
+    private static final long MTIME = 1_700_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final Config config = new Config();
+    private final DumpStats stats = new DumpStats(config);
+
+    @Test
+    void ustarFilesDirectoriesAndLinks() throws IOException {
+        Tar tar = new Tar()
+                .directory("src/")
+                .file("src/Main.java", "class Main {}\n")
+                .file("./src/Dot.java", "class Dot {}\n")
+                .link("src/Link.java", "Main.java")
+                .file("empty.txt", "");
+
+        Map<String, FileEntry> entries = walk(tar.write(dir.resolve("a.tar")));
+
+        assertEquals(List.of("src/Main.java", "src/Dot.java", "empty.txt"), List.copyOf(entries.keySet()));
+        assertEquals("class Main {}\n", content(entries.get("src/Main.java")));
+        assertEquals(14, entries.get("src/Main.java").size());
+        assertEquals(MTIME * 1000, entries.get("src/Main.java").lastModified());
+        assertEquals("", content(entries.get("empty.txt")));
+        assertTrue(stats.toJson().contains("\"totalFiles\": 3,"));
+    }
+
+    @Test
+    void longPaths() throws IOException {
+        String prefixed = "src/main/java/" + "deep/".repeat(20) + "Prefixed.java";
+        String gnuLong = "src/" + "very-long-directory-name/".repeat(8) + "GnuLong.java";
+        Tar tar = new Tar()
+                .ustarPrefixed(prefixed, "prefixed\n")
+                .gnuLongName(gnuLong, "gnu\n");
+
+        Map<String, FileEntry> entries = walk(tar.write(dir.resolve("long.tar")));
+
+        assertEquals(List.of(prefixed, gnuLong), List.copyOf(entries.keySet()));
+        assertEquals("prefixed\n", content(entries.get(prefixed)));
+        assertEquals("gnu\n", content(entries.get(gnuLong)));
+    }
+
+    @Test
+    void paxRecordsOverrideTheHeader() throws IOException {
+        String content = "pax content\n".repeat(100);
+        Tar tar = new Tar()
+                .globalPax("comment", "ignored")
+                .pax(Map.of("path", "src/Модуль.java", "mtime", "1700000000.25",
+                        "size", String.valueOf(content.length())), "header-name.java", content, 0)
+                .file("after.txt", "after\n");
+
+        Map<String, FileEntry> entries = walk(tar.write(dir.resolve("pax.tar")));
+
+        assertEquals(List.of("src/Модуль.java", "after.txt"), List.copyOf(entries.keySet()));
+        FileEntry entry = entries.get("src/Модуль.java");
+        assertEquals(content, content(entry));
+        assertEquals(content.length(), entry.size());
+        assertEquals(MTIME * 1000 + 250, entry.lastModified());
+        assertEquals("after\n", content(entries.get("after.txt")));
+    }
+
+    @Test
+    void base256Size() throws IOException {
+        Tar tar = new Tar()
+                .base256("big.txt", "base-256 size\n")
+                .file("next.txt", "next\n");
+
+        Map<String, FileEntry> entries = walk(tar.write(dir.resolve("b256.tar")));
+
+        assertEquals("base-256 size\n", content(entries.get("big.txt")));
+        assertEquals("next\n", content(entries.get("next.txt")));
+    }
+
+    @Test
+    void gzippedTar() throws IOException {
+        Tar tar = new Tar()
+                .file("a.txt", "a\n")
+                .file("b.txt", "b\n".repeat(1000));
+        Path tgz = dir.resolve("a.tgz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tgz))) {
+            out.write(tar.bytes());
+        }
+
+        Map<String, FileEntry> entries = walk(tgz);
+
+        assertEquals("a\n", content(entries.get("a.txt")));
+        assertEquals("b\n".repeat(1000), content(entries.get("b.txt")));
+    }
+
+    @Test
+    void ignoredDirectoriesAndFilesAreSkipped() throws IOException {
+        Tar tar = new Tar()
+                .file("build/out/A.class", "x")
+                .file("build/B.class", "y")
+                .file("src/app.log", "log\n")
+                .file("src/App.java", "class App {}\n");
+        IgnoreMatcher matcher = IgnoreMatcher.root(IgnoreRules.compile(List.of("build/", "*.log")),
+                IgnoreRules.empty(), false);
+
+        Map<String, FileEntry> entries = walk(tar.write(dir.resolve("ignored.tar")), matcher);
+
+        assertEquals(List.of("src/App.java"), List.copyOf(entries.keySet()));
+        String json = stats.toJson();
+        assertTrue(json.contains("\"skippedDirs\": 1,"), json);
+        assertTrue(json.contains("\"ignoredTextFiles\": 1,"), json);
+    }
+
+    // Without --sample only the head within the size limit is kept, with it also the real tail and size
+    @Test
+    void largeEntryKeepsHeadAndTail() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 20_000; line++) {
+            text.append("line ").append(line).append('\n');
+        }
+        byte[] content = text.toString().getBytes(StandardCharsets.UTF_8);
+        Path archive = new Tar().file("big.txt", text.toString()).write(dir.resolve("big.tar"));
+        config.setMaxFileSizeBytes(1024);
+
+        try (SeekableByteChannel channel = walk(archive).get("big.txt").open()) {
+            assertEquals(1025, channel.size());
+        }
+
+        config.setSampleHeadLines(5);
+        config.setSampleTailLines(5);
+        try (SeekableByteChannel channel = walk(archive).get("big.txt").open()) {
+            assertEquals(content.length, channel.size());
+            assertArrayEquals(Arrays.copyOf(content, 1024), read(channel, 0, 1024));
+            assertArrayEquals(Arrays.copyOfRange(content, content.length - 1024, content.length),
+                    read(channel, content.length - 1024, 1024));
+            CRC32C crc = new CRC32C();
+            crc.update(content);
+            assertEquals(crc.getValue(), DumpCache.contentHash(channel, ByteBuffer.allocate(Constants.READ_BUFFER_SIZE)));
+        }
+    }
+
+    @Test
+    void damagedArchivesAreRejected() throws IOException {
+        byte[] tar = new Tar().file("a.txt", "a".repeat(2000)).bytes();
+
+        byte[] badChecksum = tar.clone();
+        badChecksum[0] = 'b';
+        Path bad = Files.write(dir.resolve("bad.tar"), badChecksum);
+        assertThrows(IOException.class, () -> walk(bad));
+
+        Path truncated = Files.write(dir.resolve("truncated.tar"), Arrays.copyOf(tar, 1000));
+        assertThrows(IOException.class, () -> walk(truncated));
+    }
+
+    private Map<String, FileEntry> walk(Path archive) throws IOException {
+        return walk(archive, IgnoreMatcher.root(IgnoreRules.empty(), IgnoreRules.empty(), false));
+    }
+
+    private Map<String, FileEntry> walk(Path archive, IgnoreMatcher matcher) throws IOException {
+        config.setRootPath(archive);
+        Map<String, FileEntry> entries = new LinkedHashMap<>();
+        try (ArchiveSource source = ArchiveSource.open(config)) {
+            source.walk(matcher, stats, entry -> entries.put(entry.path(), entry));
+        }
+        return entries;
+    }
+
+    private static String content(FileEntry entry) throws IOException {
+        try (SeekableByteChannel channel = entry.open()) {
+            return new String(read(channel, 0, (int) channel.size()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] read(SeekableByteChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    // Minimal tar writer: 512-byte headers with octal fields and checksums, content padded to whole blocks
+    private static final class Tar {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Tar file(String name, String content) {
+            byte[] bytes = utf8(content);
+            entry(header(name, '0', bytes.length), bytes);
+            return this;
+        }
+
+        Tar directory(String name) {
+            entry(header(name, '5', 0), new byte[0]);
+            return this;
+        }
+
+        Tar link(String name, String target) {
+            byte[] header = header(name, '2', 0);
+            put(header, 157, utf8(target));
+            checksum(header);
+            entry(header, new byte[0]);
+            return this;
+        }
+
+        Tar ustarPrefixed(String path, String content) {
+            // The name field takes at most 100 bytes, the rest goes to the prefix
+            int slash = path.indexOf('/', path.length() - 101);
+            byte[] bytes = utf8(content);
+            byte[] header = header(path.substring(slash + 1), '0', bytes.length);
+            put(header, 345, utf8(path.substring(0, slash)));
+            checksum(header);
+            entry(header, bytes);
+            return this;
+        }
+
+        Tar gnuLongName(String path, String content) {
+            byte[] name = utf8(path + "\0");
+            entry(header("././@LongLink", 'L', name.length), name);
+            return file(path.substring(0, 99), content);
+        }
+
+        Tar globalPax(String key, String value) {
+            byte[] records = paxRecords(Map.of(key, value));
+            entry(header("pax_global_header", 'g', records.length), records);
+            return this;
+        }
+
+        Tar pax(Map<String, String> values, String headerName, String content, long headerSize) {
+            byte[] records = paxRecords(values);
+            entry(header("PaxHeaders/" + headerName, 'x', records.length), records);
+            entry(header(headerName, '0', headerSize), utf8(content));
+            return this;
+        }
+
+        Tar base256(String name, String content) {
+            byte[] bytes = utf8(content);
+            byte[] header = header(name, '0', 0);
+            Arrays.fill(header, 124, 136, (byte) 0);
+            header[124] = (byte) 0x80;
+            ByteBuffer.wrap(header, 128, 8).putLong(bytes.length);
+            checksum(header);
+            entry(header, bytes);
+            return this;
+        }
+
+        byte[] bytes() {
+            ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            tar.writeBytes(out.toByteArray());
+            tar.writeBytes(new byte[1024]);
+            return tar.toByteArray();
+        }
+
+        Path write(Path path) throws IOException {
+            return Files.write(path, bytes());
+        }
+
+        private void entry(byte[] header, byte[] content) {
+            out.writeBytes(header);
+            out.writeBytes(content);
+            out.writeBytes(new byte[(512 - content.length % 512) % 512]);
+        }
+
+        private static byte[] header(String name, char type, long size) {
+            byte[] header = new byte[512];
+            put(header, 0, utf8(name));
+            put(header, 100, utf8("0000644\0"));
+            put(header, 108, utf8("0000000\0"));
+            put(header, 116, utf8("0000000\0"));
+            put(header, 124, utf8("%011o\0".formatted(size)));
+            put(header, 136, utf8("%011o\0".formatted(MTIME)));
+            header[156] = (byte) type;
+            put(header, 257, utf8("ustar\0" + "00"));
+            checksum(header);
+            return header;
+        }
+
+        private static void checksum(byte[] header) {
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            long sum = 0;
+            for (byte b : header) {
+                sum += b & 0xff;
+            }
+            put(header, 148, utf8("%06o\0 ".formatted(sum)));
+        }
+
+        // "<length> <key>=<value>\n", the length counts its own digits
+        private static byte[] paxRecords(Map<String, String> values) {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                int body = utf8(" " + value.getKey() + "=" + value.getValue() + "\n").length;
+                int length = body + String.valueOf(body).length();
+                if (String.valueOf(length).length() > String.valueOf(body).length()) {
+                    length++;
+                }
+                records.writeBytes(utf8(length + " " + value.getKey() + "=" + value.getValue() + "\n"));
+            }
+            return records.toByteArray();
+        }
+
+        private static void put(byte[] header, int offset, byte[] value) {
+            System.arraycopy(value, 0, header, offset, value.length);
+        }
+
+        private static byte[] utf8(String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// --incremental splices unchanged blocks from the previous dump, the result must equal a fresh dump
+class DumpCacheTest {
+
+    private static final Instant TIME = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path outputDir;
+
+    @TempDir
+    Path outside;
+
+    @BeforeEach
+    void generateTree() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            write(root.resolve("src/File" + i + ".java"), ("class File" + i + " {}\n").repeat(10 + i), TIME);
+        }
+    }
+
+    @Test
+    void unchangedFilesAreReused() throws IOException {
+        DumpStats first = dump(config());
+        String firstBlocks = blocks();
+
+        DumpStats second = dump(config());
+
+        assertEquals(10, first.getRenderedBlocks());
+        assertEquals(0, first.getReusedBlocks());
+        assertEquals(0, second.getRenderedBlocks());
+        assertEquals(10, second.getReusedBlocks());
+        assertEquals(firstBlocks, blocks());
+    }
+
+    @Test
+    void changedFileIsRenderedAgain() throws IOException {
+        dump(config());
+        // Same size, so only the time and the content hash tell the change
+        write(root.resolve("src/File3.java"), ("class FileX {}\n").repeat(13), TIME.plusSeconds(60));
+
+        DumpStats stats = dump(config());
+
+        assertEquals(1, stats.getRenderedBlocks());
+        assertEquals(9, stats.getReusedBlocks());
+        assertTrue(blocks().contains("class FileX {}"));
+        assertEquals(freshBlocks(), blocks());
+    }
+
+    // A touched file with the same content keeps its block
+    @Test
+    void touchedFileWithSameContentIsReused() throws IOException {
+        dump(config());
+        Files.setLastModifiedTime(root.resolve("src/File3.java"), FileTime.from(TIME.plusSeconds(60)));
+
+        DumpStats stats = dump(config());
+
+        assertEquals(0, stats.getRenderedBlocks());
+        assertEquals(10, stats.getReusedBlocks());
+    }
+
+    @Test
+    void changedOptionsInvalidateTheCache() throws IOException {
+        dump(config());
+        Config config = config();
+        config.setMaxFileLines(5);
+
+        DumpStats stats = dump(config);
+
+        assertEquals(10, stats.getRenderedBlocks());
+        assertEquals(0, stats.getReusedBlocks());
+        assertTrue(blocks().contains("[Truncated: line limit exceeded]"));
+    }
+
+    // The link itself does not change when its target does
+    @Test
+    void changedLinkTargetIsRenderedAgain() throws IOException {
+        Path target = outside.resolve("target.txt");
+        write(target, "old content\n", TIME);
+        Files.createSymbolicLink(root.resolve("link.txt"), target);
+        dump(config());
+        write(target, "new content\n", TIME.plusSeconds(60));
+
+        DumpStats stats = dump(config());
+
+        assertEquals(1, stats.getRenderedBlocks());
+        assertTrue(blocks().contains("new content"));
+        assertFalse(blocks().contains("old content"));
+    }
+
+    private Config config() {
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(outputDir.resolve("dump.txt"));
+        config.setIncremental(true);
+        return config;
+    }
+
+    private DumpStats dump(Config config) throws IOException {
+        return FileDumper.dump(config, IgnoreLoader.loadIgnoreMatcher(root, true));
+    }
+
+    private String freshBlocks() throws IOException {
+        Config config = config();
+        config.setOutputPath(outputDir.resolve("fresh.txt"));
+        config.setIncremental(false);
+        dump(config);
+        return blocks(config.getOutputPath());
+    }
+
+    private String blocks() throws IOException {
+        return blocks(outputDir.resolve("dump.txt"));
+    }
+
+    // The file blocks without the header and the footer, which hold the time and the counters
+    private static String blocks(Path dump) throws IOException {
+        String text = Files.readString(dump);
+        String end = "<<<END FILE>>>";
+        return text.substring(text.indexOf("<<<FILE: "), text.lastIndexOf(end) + end.length());
+    }
+
+    private static void write(Path file, String content, Instant time) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(time));
+    }
+}
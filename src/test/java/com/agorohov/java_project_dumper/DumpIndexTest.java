@@ -0,0 +1,219 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// --index writes the offsets of the blocks, --extract reads them back without scanning the dump
+class DumpIndexTest {
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path outputDir;
+
+    private final List<String> paths = new ArrayList<>();
+
+    @BeforeEach
+    void generateTree() throws IOException {
+        for (int i = 0; i < 40; i++) {
+            String path = "src/pkg" + i % 4 + "/File" + i + (i % 5 == 0 ? ".kt" : ".java");
+            Path file = root.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, ("class File" + i + " { // строка\n").repeat(20 + i * 30));
+            paths.add(path);
+        }
+        Files.writeString(root.resolve("src/Copy.java"), Files.readString(root.resolve("src/pkg1/File1.java")));
+        paths.add("src/Copy.java");
+        Files.write(root.resolve("src/blob.dat"), new byte[4096]);
+        paths.add("src/blob.dat");
+    }
+
+    @Test
+    void indexPointsAtEveryBlock() throws IOException {
+        Path dump = dump(0);
+        String text = Files.readString(dump);
+
+        List<BlockIndex.Block> blocks = readIndex(dump);
+
+        assertEquals(paths.stream().sorted().toList(), blocks.stream().map(BlockIndex.Block::path).sorted().toList());
+        for (BlockIndex.Block block : blocks) {
+            String content = slice(dump, block);
+            assertTrue(content.startsWith("<<<FILE: " + block.path() + ">>>"), content);
+            assertTrue(text.contains(content));
+            // Cut bodies and markers are not the content of the file
+            if (block.kind() == BlockKind.TEXT) {
+                assertEquals(crc(root.resolve(block.path())), block.hash());
+            } else {
+                assertEquals(DumpCache.NO_HASH, block.hash(), block.path());
+            }
+        }
+        assertTrue(blocks.stream().anyMatch(block -> block.kind() == BlockKind.TRUNCATED_BY_LINES));
+        assertTrue(blocks.stream().anyMatch(block -> block.kind() == BlockKind.BINARY));
+        // The second copy of a file is a SAME AS block
+        assertEquals(1, blocks.stream()
+                .filter(block -> block.path().equals("src/pkg1/File1.java") || block.path().equals("src/Copy.java"))
+                .filter(block -> block.kind() == BlockKind.DUPLICATE)
+                .count());
+    }
+
+    @Test
+    void extractPrintsTheMatchingBlocksInDumpOrder() throws IOException {
+        Path dump = dump(0);
+        List<BlockIndex.Block> blocks = readIndex(dump);
+
+        StringBuilder expected = new StringBuilder();
+        for (BlockIndex.Block block : blocks) {
+            if (block.path().startsWith("src/pkg2/")) {
+                expected.append(slice(dump, block));
+            }
+        }
+
+        assertEquals(expected.toString(), extract(dump, "src/pkg2/*"));
+        assertEquals(slice(dump, blocks.get(blocks.size() - 1)), extract(dump, blocks.get(blocks.size() - 1).path()));
+    }
+
+    // Every part of a split dump has its own index with offsets in that part
+    @Test
+    void splitPartsHaveTheirOwnIndex() throws IOException {
+        Path whole = dump(0);
+        List<BlockIndex.Block> wholeIndex = readIndex(whole);
+
+        long limit = 16 * 1024;
+        Path output = dump(limit);
+        List<BlockIndex.Block> partIndex = new ArrayList<>();
+        List<String> partBlocks = new ArrayList<>();
+        int parts = 0;
+        while (Files.exists(DumpSplitter.partPath(output, parts + 1))) {
+            parts++;
+            Path part = DumpSplitter.partPath(output, parts);
+            assertTrue(Files.size(part) <= limit || readIndex(part).size() == 1, part + " is too large");
+            for (BlockIndex.Block block : readIndex(part)) {
+                partIndex.add(block);
+                partBlocks.add(slice(part, block));
+            }
+        }
+
+        assertTrue(parts > 1);
+        assertEquals(wholeIndex.stream().map(BlockIndex.Block::path).toList(),
+                partIndex.stream().map(BlockIndex.Block::path).toList());
+        // A copy whose original is in another part gets the content, other blocks are copied as they are
+        for (int i = 0; i < wholeIndex.size(); i++) {
+            BlockIndex.Block block = wholeIndex.get(i);
+            if (block.kind() == BlockKind.DUPLICATE && partIndex.get(i).kind() != BlockKind.DUPLICATE) {
+                assertEquals(TextFormatter.blockStart(block.path()) + Files.readString(root.resolve(block.path()))
+                        + TextFormatter.BLOCK_END, partBlocks.get(i));
+            } else {
+                assertEquals(slice(whole, block), partBlocks.get(i));
+            }
+        }
+    }
+
+    // Parts are read one by one, a SAME AS reference must lead to a block of the same part
+    @Test
+    void firstCopyInAPartGetsTheContent() throws IOException {
+        String content = Files.readString(root.resolve("src/pkg1/File1.java"));
+        Files.createDirectories(root.resolve("zz"));
+        Files.writeString(root.resolve("zz/Copy1.java"), content);
+        Files.writeString(root.resolve("zz/Copy2.java"), content);
+
+        Path output = dump(16 * 1024);
+        Map<String, BlockKind> kinds = new HashMap<>();
+        for (int number = 1; Files.exists(DumpSplitter.partPath(output, number)); number++) {
+            Path part = DumpSplitter.partPath(output, number);
+            String text = Files.readString(part);
+            Matcher sameAs = Pattern.compile("<<<SAME AS: (.+)>>>").matcher(text);
+            while (sameAs.find()) {
+                assertTrue(text.contains("<<<FILE: " + sameAs.group(1) + ">>>"), part + ": " + sameAs.group());
+            }
+            for (BlockIndex.Block block : readIndex(part)) {
+                kinds.put(block.path(), block.kind());
+                if (block.kind() == BlockKind.TEXT) {
+                    assertEquals(TextFormatter.blockStart(block.path()) + Files.readString(root.resolve(block.path()))
+                            + TextFormatter.BLOCK_END, slice(part, block));
+                }
+            }
+        }
+
+        assertEquals(BlockKind.TEXT, kinds.get("zz/Copy1.java"));
+        assertEquals(BlockKind.DUPLICATE, kinds.get("zz/Copy2.java"));
+    }
+
+    @Test
+    void dumpWithoutIndexIsRejected() throws IOException {
+        Config config = config(0);
+        config.setIndexed(false);
+        FileDumper.dump(config, IgnoreLoader.loadIgnoreMatcher(root, true));
+
+        assertThrows(IllegalArgumentException.class, () -> readIndex(config.getOutputPath()));
+    }
+
+    @Test
+    void extractWithoutMatchesFails() throws IOException {
+        Path dump = dump(0);
+
+        assertThrows(IllegalArgumentException.class, () -> extract(dump, "*.xml"));
+    }
+
+    private Path dump(long splitSizeBytes) throws IOException {
+        Config config = config(splitSizeBytes);
+        FileDumper.dump(config, IgnoreLoader.loadIgnoreMatcher(root, true));
+        return config.getOutputPath();
+    }
+
+    private Config config(long splitSizeBytes) {
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(outputDir.resolve(splitSizeBytes > 0 ? "split.txt" : "dump.txt"));
+        config.setIndexed(true);
+        config.setSplitSizeBytes(splitSizeBytes);
+        config.setMaxFileLines(500);
+        return config;
+    }
+
+    private String extract(Path dump, String glob) throws IOException {
+        Config config = new Config();
+        config.setOutputPath(dump);
+        config.setExtractGlob(glob);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DumpExtractor.extract(config, Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<BlockIndex.Block> readIndex(Path dump) throws IOException {
+        try (FileChannel channel = FileChannel.open(dump)) {
+            return DumpIndex.read(channel);
+        }
+    }
+
+    private static String slice(Path dump, BlockIndex.Block block) throws IOException {
+        byte[] bytes = Files.readAllBytes(dump);
+        return new String(bytes, (int) block.offset(), (int) block.length(), StandardCharsets.UTF_8);
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(Files.readAllBytes(file));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,122 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Watch mode rebuilds while files are saved and removed, a failed rebuild must not end it
+class DumpWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 20_000;
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path outputDir;
+
+    private Thread watcher;
+
+    @AfterEach
+    void stopWatcher() throws InterruptedException {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    // The directory is removed after its parent listed it and before its own listing
+    @Test
+    void directoryRemovedDuringTheWalkIsLeftOut() throws IOException {
+        Files.writeString(root.resolve("a.txt"), "kept\n");
+        Files.createDirectories(root.resolve("gone"));
+        Files.writeString(root.resolve("gone/b.txt"), "removed\n");
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(outputDir.resolve("dump.txt"));
+        config.setThreads(4);
+        IgnoreRules none = IgnoreRules.compile(List.of());
+        IgnoreMatcher matcher = IgnoreMatcher.root(none, none, true, (dir, dirPath) -> {
+            if (dirPath.equals("gone")) {
+                deleteTree(dir);
+            }
+            return none;
+        });
+
+        FileDumper.dump(config, matcher);
+
+        String dump = Files.readString(config.getOutputPath());
+        assertTrue(dump.contains("<<<FILE: a.txt>>>"));
+        assertFalse(dump.contains("gone/b.txt"));
+    }
+
+    // The metrics file turns into a directory, so every rebuild after the first one fails
+    @Test
+    void failedRebuildKeepsWatching() throws Exception {
+        Path file = root.resolve("a.txt");
+        Files.writeString(file, "first\n");
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(outputDir.resolve("dump.txt"));
+        config.setMetricsPath(outputDir.resolve("metrics.json"));
+        watcher = new Thread(() -> {
+            try {
+                DumpWatcher.watch(config);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        watcher.setDaemon(true);
+        watcher.start();
+
+        awaitDump(file, "first");
+        // The metrics are written after the dump
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!Files.exists(config.getMetricsPath()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Files.delete(config.getMetricsPath());
+        Files.createDirectory(config.getMetricsPath());
+
+        awaitDump(file, "second");
+        awaitDump(file, "third");
+        assertTrue(watcher.isAlive());
+    }
+
+    // Saves the file until the dump has its content: events before the watch is set up are lost
+    private void awaitDump(Path file, String content) throws Exception {
+        Path output = outputDir.resolve("dump.txt");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Files.writeString(file, content + "\n");
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(50);
+                if (Files.exists(output) && Files.readString(output).contains(content)) {
+                    return;
+                }
+            }
+        }
+        fail("The dump was not updated with " + content);
+    }
+
+    private static void deleteTree(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
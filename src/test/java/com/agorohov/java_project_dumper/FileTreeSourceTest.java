@@ -0,0 +1,75 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The walk order must not depend on the threads or on how far the listing may run ahead of the consumer
+class FileTreeSourceTest {
+
+    @TempDir
+    static Path root;
+
+    private static final List<String> EXPECTED = new ArrayList<>();
+
+    @BeforeAll
+    static void generateTree() throws IOException {
+        generate(root, 0);
+        collect(root, "");
+    }
+
+    // maxAhead 0: no subdirectory is forked while listing, each is started when the consumer enters its parent
+    @ParameterizedTest
+    @CsvSource({"1, 0", "4, 0", "4, 7", "4, 50000"})
+    void walkOrderIsFixed(int threads, int maxAhead) throws IOException {
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setThreads(threads);
+        IgnoreRules none = IgnoreRules.compile(List.of());
+        List<String> paths = new ArrayList<>();
+
+        new FileTreeSource(config, root, maxAhead).walk(IgnoreMatcher.root(none, none, false), new DumpStats(config),
+                entry -> paths.add(entry.path()));
+
+        assertEquals(EXPECTED, paths);
+    }
+
+    // Four levels of three directories with a few files each
+    private static void generate(Path dir, int depth) throws IOException {
+        for (int file = 0; file < 3; file++) {
+            Files.writeString(dir.resolve("f" + file + ".txt"), dir + "\n");
+        }
+        if (depth < 4) {
+            for (int sub = 0; sub < 3; sub++) {
+                generate(Files.createDirectory(dir.resolve("d" + sub)), depth + 1);
+            }
+        }
+    }
+
+    // Sorted by name in each directory, the content of a subdirectory right after its name
+    private static void collect(Path dir, String dirPath) throws IOException {
+        List<Path> children;
+        try (Stream<Path> list = Files.list(dir)) {
+            children = list.sorted((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()))
+                    .toList();
+        }
+        for (Path child : children) {
+            String path = dirPath.isEmpty() ? child.getFileName().toString() : dirPath + "/" + child.getFileName();
+            if (Files.isDirectory(child)) {
+                collect(child, path);
+            } else {
+                EXPECTED.add(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.agorohov.java_project_dumper;
+
+import org.eclipse.jgit.ignore.FastIgnoreRule;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The indexed rules must decide like the JGit IgnoreNode they replace, whichever index holds the rules
+class IgnoreRulesTest {
+
+    // Literal names and paths, extensions, prefixes and globs, with negations and directory-only rules
+    private static final List<String> RULES = List.of(
+            "target", "build/", "/out", "node_modules/", "docs/api", "/src/generated/", "*.log", "*.class",
+            "!keep.log", "*.tmp", "!important.tmp", "tmp*", "cache-*/", "**/logs", "**/test/resources/*.bin",
+            "src/**/Gen*.java", "a/**/b", "*.[oa]", "file?.txt", "\\#hash", ".idea", "*~", "!/target",
+            "secret.*", "!secret.md", "generated/**", "foo/*/bar", "**/*.min.js");
+
+    private static final List<String> PATHS = List.of(
+            "target", "target/classes/A.class", "sub/target", "build", "sub/build", "out", "sub/out",
+            "node_modules/x/index.js", "docs/api", "docs/api/index.html", "sub/docs/api", "src/generated",
+            "src/generated/A.java", "sub/src/generated", "app.log", "logs/keep.log", "keep.log", "A.class",
+            "x.tmp", "important.tmp", "dir/important.tmp", "tmpfile", "dir/tmp", "cache-1", "cache-1/data",
+            "logs", "a/logs", "a/b/logs/x", "src/test/resources/x.bin", "src/test/resources/d/x.bin",
+            "src/main/java/GenModel.java", "src/GenA.java", "GenA.java", "a/b", "a/x/b", "a/x/y/b", "ab",
+            "lib.o", "lib.a", "lib.so", "file1.txt", "file12.txt", "#hash", "hash", ".idea", ".idea/workspace.xml",
+            "notes~", "secret.txt", "secret.md", "dir/secret.key", "generated", "generated/x/y.java",
+            "foo/x/bar", "foo/x/y/bar", "web/app.min.js", "app.js", "README.md", "src/Main.java");
+
+    @Test
+    void decidesLikeIgnoreNode() {
+        assertSameDecisions(RULES);
+    }
+
+    // The last matching rule wins even when the candidates come from different indexes
+    @Test
+    void decidesLikeIgnoreNodeForShuffledRuleSets() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<String> rules = new ArrayList<>();
+            int count = 1 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                rules.add(RULES.get(random.nextInt(RULES.size())));
+            }
+            assertSameDecisions(rules);
+        }
+    }
+
+    @Test
+    void emptyRulesMatchNothing() {
+        IgnoreRules rules = IgnoreRules.compile(List.of());
+
+        assertTrue(rules.isEmpty());
+        assertNull(rules.check("anything", false));
+    }
+
+    @Test
+    void nestedGitignoreIsRelativeToItsDirectoryAndWins(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve(".gitignore"), "*.gen\nlocal/\n");
+        Path module = Files.createDirectories(root.resolve("module"));
+        Files.writeString(module.resolve(".gitignore"), "!keep.gen\n/only-here.txt\n");
+
+        IgnoreMatcher rootMatcher = IgnoreLoader.loadIgnoreMatcher(root, true);
+        IgnoreMatcher moduleMatcher = rootMatcher.forDirectory(module, "module");
+
+        assertTrue(rootMatcher.isIgnored("keep.gen", false));
+        assertTrue(moduleMatcher.isIgnored("module/other.gen", false));
+        assertFalse(moduleMatcher.isIgnored("module/keep.gen", false));
+        assertTrue(moduleMatcher.isIgnored("module/only-here.txt", false));
+        assertFalse(moduleMatcher.isIgnored("module/sub/only-here.txt", false));
+        assertTrue(moduleMatcher.isIgnored("module/local", true));
+        assertFalse(moduleMatcher.isIgnored("module/local", false));
+    }
+
+    @Test
+    void projectIgnoreFileOverridesGitignore(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve(".gitignore"), "*.gen\n");
+        Files.writeString(root.resolve(Constants.IGNORE_FILENAME), "!wanted.gen\nsrc/private/\n");
+        Path module = Files.createDirectories(root.resolve("module"));
+        Files.writeString(module.resolve(".gitignore"), "wanted.gen\n");
+
+        IgnoreMatcher rootMatcher = IgnoreLoader.loadIgnoreMatcher(root, true);
+        IgnoreMatcher moduleMatcher = rootMatcher.forDirectory(module, "module");
+
+        assertFalse(rootMatcher.isIgnored("wanted.gen", false));
+        assertFalse(moduleMatcher.isIgnored("module/wanted.gen", false));
+        assertTrue(rootMatcher.isIgnored("src/private", true));
+    }
+
+    @Test
+    void nestedGitignoreIsSkippedWithoutGitignore(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve(".gitignore"), "*.gen\n");
+        Path module = Files.createDirectories(root.resolve("module"));
+        Files.writeString(module.resolve(".gitignore"), "*.txt\n");
+
+        IgnoreMatcher rootMatcher = IgnoreLoader.loadIgnoreMatcher(root, false);
+
+        assertFalse(rootMatcher.isIgnored("a.gen", false));
+        assertFalse(rootMatcher.forDirectory(module, "module").isIgnored("module/a.txt", false));
+    }
+
+    private static void assertSameDecisions(List<String> lines) {
+        IgnoreRules rules = IgnoreRules.compile(lines);
+        List<FastIgnoreRule> fastRules = new ArrayList<>();
+        for (String line : lines) {
+            fastRules.add(new FastIgnoreRule(line));
+        }
+        IgnoreNode node = new IgnoreNode(fastRules);
+
+        for (String path : PATHS) {
+            for (boolean directory : new boolean[]{false, true}) {
+                assertEquals(node.checkIgnored(path, directory), rules.check(path, directory),
+                        () -> "rules " + lines + ", " + (directory ? "directory " : "file ") + path);
+            }
+        }
+    }
+}
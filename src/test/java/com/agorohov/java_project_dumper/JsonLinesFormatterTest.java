@@ -0,0 +1,53 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Every line must be valid JSON in valid UTF-8, whatever bytes the file has
+class JsonLinesFormatterTest {
+
+    @Test
+    void specialCharactersAreEscaped() throws IOException {
+        String line = format("a\"b\\c\n\r\t\u0001 строка".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("{\"path\":\"src/A.txt\",\"kind\":\"text\","
+                + "\"content\":\"a\\\"b\\\\c\\n\\r\\t\\u0001 строка\"}\n", line);
+    }
+
+    // Latin-1 bytes, a character cut by the size limit and a lone continuation byte
+    @Test
+    void invalidUtf8IsReplaced() throws IOException {
+        byte[] body = HexFormat.of().parseHex("636166e9" + "20" + "e282" + "0a" + "80" + "41");
+
+        String line = format(body);
+
+        assertEquals("{\"path\":\"src/A.txt\",\"kind\":\"text\","
+                + "\"content\":\"caf� �\\n�A\"}\n", line);
+    }
+
+    private static String format(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DumpWriter writer = new DumpWriter(Channels.newChannel(out), 1024)) {
+            JsonLinesFormatter.INSTANCE.writeBlock(writer, "src/A.txt", BlockKind.TEXT, body);
+        }
+        return decodeStrict(out.toByteArray());
+    }
+
+    private static String decodeStrict(byte[] bytes) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes))
+                .toString();
+    }
+}
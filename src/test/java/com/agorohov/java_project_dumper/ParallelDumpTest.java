@@ -0,0 +1,104 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Blocks rendered on worker threads must come out in the order and with the bytes of a sequential dump
+class ParallelDumpTest {
+
+    private static final int THREADS = 8;
+
+    @TempDir
+    static Path root;
+
+    @TempDir
+    Path outputDir;
+
+    @BeforeAll
+    static void generateTree() throws IOException {
+        Random random = new Random(42);
+        Files.writeString(root.resolve(".gitignore"), "*.log\nbuild/\n");
+        for (int dir = 0; dir < 12; dir++) {
+            Path packageDir = Files.createDirectories(root.resolve("src/p" + dir + "/sub" + dir % 3));
+            for (int file = 0; file < 25; file++) {
+                StringBuilder text = new StringBuilder();
+                int lines = random.nextInt(400);
+                for (int line = 0; line < lines; line++) {
+                    text.append("line ").append(line).append(' ').append("x".repeat(random.nextInt(120))).append('\n');
+                }
+                Files.writeString(packageDir.resolve("F" + file + ".java"), text);
+            }
+            byte[] binary = new byte[2048];
+            random.nextBytes(binary);
+            Files.write(packageDir.resolve("data" + dir + ".bin"), binary);
+            Files.writeString(packageDir.resolve("run.log"), "ignored\n");
+        }
+        // Same content twice, a file over the size limit and a long single line
+        Files.writeString(root.resolve("src/p0/Copy.java"), Files.readString(root.resolve("src/p1/sub1/F3.java")));
+        Files.writeString(root.resolve("src/Big.txt"), "big line\n".repeat(20_000));
+        Files.writeString(root.resolve("src/OneLine.js"), "var a=1;".repeat(30_000));
+        Files.writeString(root.resolve("src/Cyrillic.txt"), "строка файла\n".repeat(50), StandardCharsets.UTF_8);
+        // An unknown extension learned as text from its first files, the later ones are binary when sniffed:
+        // they are dumped as text only if the verdict is learned before they are read. The samples are large
+        // enough to be still in work when the next files are taken.
+        Path generated = Files.createDirectories(root.resolve("src/gen"));
+        for (int file = 0; file < 60; file++) {
+            String content = file < Constants.EXTENSION_LEARN_SAMPLES
+                    ? ("value = " + file + " " + "y".repeat(300) + "\n").repeat(250)
+                    : "\u0001\u0002\n".repeat(20);
+            Files.writeString(generated.resolve("G%02d.gen".formatted(file)), content);
+        }
+        Files.createDirectories(root.resolve("build"));
+        Files.writeString(root.resolve("build/Out.java"), "ignored\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, THREADS})
+    void parallelTextDumpEqualsSequential(int threads) throws IOException {
+        byte[] sequential = body(dump(1, DumpFormat.TEXT));
+        byte[] parallel = body(dump(threads, DumpFormat.TEXT));
+
+        assertTrue(sequential.length > 100_000);
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    void parallelJsonLinesDumpEqualsSequential() throws IOException {
+        assertArrayEquals(Files.readAllBytes(dump(1, DumpFormat.JSONL)),
+                Files.readAllBytes(dump(THREADS, DumpFormat.JSONL)));
+    }
+
+    private Path dump(int threads, DumpFormat format) throws IOException {
+        Config config = new Config();
+        config.setRootPath(root);
+        config.setOutputPath(outputDir.resolve("dump-" + threads + "-" + format + ".txt"));
+        config.setThreads(threads);
+        config.setFormat(format);
+        config.setMaxFileSizeBytes(100_000);
+        config.setMaxFileLines(300);
+        FileDumper.dump(config, IgnoreLoader.loadIgnoreMatcher(root, true));
+        return config.getOutputPath();
+    }
+
+    // The header holds the time of the dump, the body starts at the first block and includes the statistics
+    private static byte[] body(Path dump) throws IOException {
+        byte[] bytes = Files.readAllBytes(dump);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        int start = text.indexOf("<<<FILE: ");
+        assertTrue(start > 0);
+        return Arrays.copyOfRange(bytes, start, bytes.length);
+    }
+}
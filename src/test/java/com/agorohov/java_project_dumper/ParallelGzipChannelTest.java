@@ -0,0 +1,102 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Each chunk is its own gzip member, the concatenation must read back as one stream with GZIPInputStream
+class ParallelGzipChannelTest {
+
+    private static final byte[] MEMBER_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void severalMembersReadBackAsOneStream(int threads) throws IOException {
+        byte[] data = content(3 * Constants.GZIP_CHUNK_SIZE + 12345);
+
+        byte[] gzip = compress(data, threads, 7777);
+
+        assertEquals(4, members(gzip));
+        assertArrayEquals(data, gunzip(gzip));
+    }
+
+    // No empty member after a full last chunk
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void wholeChunksGiveOneMemberEach(int threads) throws IOException {
+        byte[] data = content(2 * Constants.GZIP_CHUNK_SIZE);
+
+        byte[] gzip = compress(data, threads, Constants.GZIP_CHUNK_SIZE);
+
+        assertEquals(2, members(gzip));
+        assertArrayEquals(data, gunzip(gzip));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void emptyInputIsOneEmptyMember(int threads) throws IOException {
+        byte[] gzip = compress(new byte[0], threads, 1);
+
+        assertEquals(1, members(gzip));
+        assertEquals(0, gunzip(gzip).length);
+    }
+
+    // Text to compress well and random bytes to not compress at all
+    private static byte[] content(int size) {
+        byte[] data = new byte[size];
+        byte[] line = "class Line { int value = 42; }\n".getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(11);
+        for (int offset = 0; offset < size; offset += 4096) {
+            int length = Math.min(4096, size - offset);
+            if (random.nextBoolean()) {
+                byte[] noise = new byte[length];
+                random.nextBytes(noise);
+                System.arraycopy(noise, 0, data, offset, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    data[offset + i] = line[(offset + i) % line.length];
+                }
+            }
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, int threads, int writeSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipChannel channel = new ParallelGzipChannel(Channels.newChannel(out), threads)) {
+            for (int offset = 0; offset < data.length; offset += writeSize) {
+                channel.write(ByteBuffer.wrap(data, offset, Math.min(writeSize, data.length - offset)));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int members(byte[] gzip) {
+        int count = 0;
+        for (int i = 0; i + MEMBER_HEADER.length <= gzip.length; i++) {
+            if (Arrays.equals(gzip, i, i + MEMBER_HEADER.length, MEMBER_HEADER, 0, MEMBER_HEADER.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Size limit on long lines and --sample=head:N,tail:M, the middle of a file is skipped without being read
+class SampleDumpTest {
+
+    private static final String NL = System.lineSeparator();
+
+    @TempDir
+    Path root;
+
+    private final Map<String, String> bodies = new LinkedHashMap<>();
+    private final Map<String, BlockKind> kinds = new LinkedHashMap<>();
+
+    @Test
+    void longSingleLineIsCutAtTheSizeLimit() throws IOException {
+        Files.writeString(root.resolve("one.js"), "x".repeat(3_000_000));
+
+        dump(ProjectDumper.builder(root).maxFileSizeBytes(1024));
+
+        assertEquals(BlockKind.TRUNCATED_BY_SIZE, kinds.get("one.js"));
+        assertEquals("x".repeat(1024) + NL + "[Truncated: size limit exceeded]" + NL, bodies.get("one.js"));
+    }
+
+    @Test
+    void lineLimitKeepsWholeLines() throws IOException {
+        Files.writeString(root.resolve("a.txt"), lines(1, 100));
+
+        dump(ProjectDumper.builder(root).maxFileLines(10));
+
+        assertEquals(BlockKind.TRUNCATED_BY_LINES, kinds.get("a.txt"));
+        assertEquals(lines(1, 10) + "[Truncated: line limit exceeded]" + NL, bodies.get("a.txt"));
+    }
+
+    @Test
+    void sampleKeepsHeadAndTailLines() throws IOException {
+        String content = lines(1, 1000);
+        Files.writeString(root.resolve("a.txt"), content);
+
+        dump(ProjectDumper.builder(root).sample(3, 2));
+
+        String head = lines(1, 3);
+        String tail = lines(999, 1000);
+        int skipped = content.length() - head.length() - tail.length();
+        assertEquals(BlockKind.SAMPLED, kinds.get("a.txt"));
+        assertEquals(head + "[Skipped: " + skipped + " bytes]" + NL + tail, bodies.get("a.txt"));
+    }
+
+    @Test
+    void sampleOfAShortFileIsTheWholeFile() throws IOException {
+        Files.writeString(root.resolve("a.txt"), lines(1, 5));
+
+        dump(ProjectDumper.builder(root).sample(3, 2));
+
+        assertEquals(BlockKind.TEXT, kinds.get("a.txt"));
+        assertEquals(lines(1, 5), bodies.get("a.txt"));
+    }
+
+    @Test
+    void sampleOfALongSingleLineIsBoundedBySize() throws IOException {
+        Files.writeString(root.resolve("one.js"), "x".repeat(300_000));
+
+        dump(ProjectDumper.builder(root).maxFileSizeBytes(1024).sample(1, 1));
+
+        assertEquals(BlockKind.SAMPLED, kinds.get("one.js"));
+        assertEquals("x".repeat(1024) + NL + "[Skipped: " + (300_000 - 2048) + " bytes]" + NL
+                + "x".repeat(1024) + NL, bodies.get("one.js"));
+    }
+
+    private void dump(ProjectDumper.Builder builder) throws IOException {
+        builder.build().dump((path, kind, content) -> {
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            bodies.put(path, new String(bytes, StandardCharsets.UTF_8));
+            kinds.put(path, kind);
+        });
+    }
+
+    private static String lines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int line = from; line <= to; line++) {
+            text.append("line ").append(line).append('\n');
+        }
+        return text.toString();
+    }
+}
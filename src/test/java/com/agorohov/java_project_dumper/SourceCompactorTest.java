@@ -0,0 +1,195 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The lexer sees the source in chunks of any size, the output must not depend on where they end
+class SourceCompactorTest {
+
+    private static final String JAVA = """
+            package demo;
+
+            import java.util.List;
+            import static java.lang.Math.max;
+
+            /** Doc comment */
+            public class A {
+                // line comment
+                private static final String URL = "http://x/*not a comment*/";
+                private final char slash = '/';
+                private int[] values = {1, 2};
+
+                public A() {
+                    init(); /* inline */ done();
+                }
+
+                String block() {
+                    return \"""
+                        // kept in text block
+                        { brace }
+                        \""";
+                }
+
+                interface Inner {
+                    void run();
+                }
+
+                enum Kind { ONE, TWO }
+            }
+            """;
+
+    private static final String KOTLIN = """
+            import kotlin.math.max
+
+            /* outer /* nested */ still comment */
+            object Registry {
+                val name = "a${ "}" }b" // trailing
+                fun run() {
+                    println("x")
+                }
+            }
+
+            class Plain(val x: Int)
+            fun top() = 1
+            """;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 64, Integer.MAX_VALUE})
+    void compactDropsCommentsBlankLinesAndImports(int chunkSize) throws IOException {
+        Config config = config(Set.of(Compaction.COMMENTS, Compaction.BLANK, Compaction.IMPORTS), false);
+
+        assertEquals("""
+                package demo;
+                public class A {
+                    private static final String URL = "http://x/*not a comment*/";
+                    private final char slash = '/';
+                    private int[] values = {1, 2};
+                    public A() {
+                        init();  done();
+                    }
+                    String block() {
+                        return \"""
+                            // kept in text block
+                            { brace }
+                            \""";
+                    }
+                    interface Inner {
+                        void run();
+                    }
+                    enum Kind { ONE, TWO }
+                }
+                """, compact(config, "A.java", JAVA, chunkSize));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 64, Integer.MAX_VALUE})
+    void outlineKeepsTypeBodiesOnly(int chunkSize) throws IOException {
+        assertEquals("""
+                package demo;
+                import java.util.List;
+                import static java.lang.Math.max;
+                public class A {
+                    private static final String URL = "http://x/*not a comment*/";
+                    private final char slash = '/';
+                    private int[] values = { ... };
+                    public A() { ... }
+                    String block() { ... }
+                    interface Inner {
+                        void run();
+                    }
+                    enum Kind { ONE, TWO }
+                }
+                """, compact(config(Set.of(), true), "A.java", JAVA, chunkSize));
+    }
+
+    // Nested block comments and braces inside string templates are Kotlin only
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, Integer.MAX_VALUE})
+    void kotlinCommentsAndTemplates(int chunkSize) throws IOException {
+        assertEquals("""
+                object Registry {
+                    val name = "a${ "}" }b"
+                    fun run() {
+                        println("x")
+                    }
+                }
+                class Plain(val x: Int)
+                fun top() = 1
+                """, compact(config(Set.of(Compaction.COMMENTS, Compaction.BLANK, Compaction.IMPORTS), false),
+                "B.kt", KOTLIN, chunkSize));
+
+        assertEquals("""
+                import kotlin.math.max
+                object Registry {
+                    val name = "a${ "}" }b"
+                    fun run() { ... }
+                }
+                class Plain(val x: Int)
+                fun top() = 1
+                """, compact(config(Set.of(), true), "B.kt", KOTLIN, chunkSize));
+    }
+
+    @Test
+    void lineEndingsAreKept() throws IOException {
+        String source = "import a.B;\r\n\r\n// c\r\nclass C {\r\n    int f() { return 1; }\r\n}\r\n";
+
+        assertEquals("class C {\r\n    int f() { return 1; }\r\n}\r\n",
+                compact(config(Set.of(Compaction.COMMENTS, Compaction.BLANK, Compaction.IMPORTS), false),
+                        "C.java", source, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void onlyTheRequestedPartsAreDropped() throws IOException {
+        String source = "import a.B;\n\n// c\nclass C {}\n";
+
+        assertEquals("import a.B;\nclass C {}\n",
+                compact(config(Set.of(Compaction.COMMENTS, Compaction.BLANK), false), "C.java", source, 5));
+        assertEquals("\n// c\nclass C {}\n",
+                compact(config(Set.of(Compaction.IMPORTS), false), "C.java", source, 5));
+    }
+
+    @Test
+    void savedBytesAreTheDroppedBytes() throws IOException {
+        Config config = config(Set.of(Compaction.COMMENTS, Compaction.BLANK, Compaction.IMPORTS), false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] source = JAVA.getBytes(StandardCharsets.UTF_8);
+
+        SourceCompactor compactor;
+        try (DumpWriter writer = new DumpWriter(Channels.newChannel(out), 1024)) {
+            compactor = new SourceCompactor(config, "A.java", DetectedCharset.UTF_8, writer);
+            compactor.feed(source, 0, source.length);
+            compactor.finish();
+        }
+
+        assertEquals(source.length - out.size(), compactor.getSavedBytes());
+    }
+
+    private static String compact(Config config, String path, String source, int chunkSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        try (DumpWriter writer = new DumpWriter(Channels.newChannel(out), 1024)) {
+            SourceCompactor compactor = new SourceCompactor(config, path, DetectedCharset.UTF_8, writer);
+            for (int offset = 0; offset < bytes.length; offset += Math.min(chunkSize, bytes.length - offset)) {
+                compactor.feed(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            }
+            compactor.finish();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Config config(Set<Compaction> compactions, boolean outline) {
+        Config config = new Config();
+        config.setCompactions(compactions);
+        config.setOutline(outline);
+        return config;
+    }
+}
@@ -0,0 +1,172 @@
+package com.agorohov.java_project_dumper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The word-at-a-time checks must give the answers of a plain byte-by-byte classifier and of the JDK UTF-8 decoder
+class TextDetectorTest {
+
+    // Code points around the boundaries of the UTF-8 sequence lengths and of the surrogates
+    private static final int[] CODE_POINTS = {
+            'a', 'Z', ' ', '\n', '\t', 0x7E, 0x80, 0xE9, 0x7FF, 0x800, 0x430, 0x44F, 0x3B1, 0xFFFF, 0xD7FF,
+            0xE000, 0x20AC, 0x4E2D, 0x10000, 0x1F600, 0x10FFFF
+    };
+
+    @Test
+    void emptyFileIsUtf8() {
+        assertEquals(DetectedCharset.UTF_8, TextDetector.detect(ByteBuffer.allocate(0)));
+    }
+
+    @Test
+    void byteOrderMarkSelectsUtf16() {
+        assertEquals(DetectedCharset.UTF_16BE, TextDetector.detect(wrap("FEFF0041")));
+        assertEquals(DetectedCharset.UTF_16LE, TextDetector.detect(wrap("FFFE4100")));
+        assertEquals(DetectedCharset.UTF_16LE, TextDetector.detectText(wrap("FFFE4100")));
+    }
+
+    // Each sequence is tried at every offset within a word, in the SWAR part and in the byte-by-byte tail
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "C080", "C1BF", "E08080", "E09FBF", "EDA080", "EDBFBF", "F08F8080", "F4908080", "F5808080", "FF",
+            "80", "BF41", "C2", "E282", "F09F98", "C241", "E28241", "F09F9841", "C2C2A9"
+    })
+    void invalidUtf8IsLatin1(String hex) {
+        for (int offset = 0; offset < 16; offset++) {
+            byte[] content = text("a".repeat(offset), HexFormat.of().parseHex(hex), "b".repeat(24));
+            assertEquals(DetectedCharset.LATIN_1, TextDetector.detect(ByteBuffer.wrap(content)), hex + " at " + offset);
+            assertEquals(DetectedCharset.LATIN_1, TextDetector.detectText(ByteBuffer.wrap(content)), hex + " at " + offset);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"C280", "DFBF", "D0B0", "E0A080", "ED9FBF", "EE8080", "E282AC", "F0908080", "F48FBFBF"})
+    void validUtf8IsUtf8(String hex) {
+        for (int offset = 0; offset < 16; offset++) {
+            byte[] content = text("a".repeat(offset), HexFormat.of().parseHex(hex), "b".repeat(24));
+            assertEquals(DetectedCharset.UTF_8, TextDetector.detect(ByteBuffer.wrap(content)), hex + " at " + offset);
+            assertEquals(DetectedCharset.UTF_8, TextDetector.detectText(ByteBuffer.wrap(content)), hex + " at " + offset);
+        }
+    }
+
+    // A sequence cut by the end of the sample goes on in the rest of the file
+    @Test
+    void sequenceCutBySampleEndIsUtf8() {
+        byte[] content = new byte[Constants.SAMPLE_SIZE + 100];
+        Arrays.fill(content, (byte) 'a');
+        content[Constants.SAMPLE_SIZE - 1] = (byte) 0xE2;
+        content[Constants.SAMPLE_SIZE] = (byte) 0x82;
+        content[Constants.SAMPLE_SIZE + 1] = (byte) 0xAC;
+
+        assertEquals(DetectedCharset.UTF_8, TextDetector.detect(ByteBuffer.wrap(content)));
+        assertEquals(DetectedCharset.LATIN_1,
+                TextDetector.detect(ByteBuffer.wrap(Arrays.copyOf(content, Constants.SAMPLE_SIZE))));
+    }
+
+    @Test
+    void randomTextMatchesTheJdkDecoder() {
+        Random random = new Random(3);
+        for (int round = 0; round < 5000; round++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int length = random.nextInt(200);
+            for (int i = 0; i < length; i++) {
+                int codePoint = CODE_POINTS[random.nextInt(CODE_POINTS.length)];
+                out.writeBytes(Character.toString(codePoint).getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] content = out.toByteArray();
+            // Half of the samples get a byte of 80-FF in a random place
+            if (content.length > 0 && random.nextBoolean()) {
+                content[random.nextInt(content.length)] = (byte) (0x80 + random.nextInt(0x80));
+            }
+            if (startsWithBom(content)) {
+                continue;
+            }
+
+            DetectedCharset expected = isValidUtf8(content) ? DetectedCharset.UTF_8 : DetectedCharset.LATIN_1;
+            String message = HexFormat.of().formatHex(content);
+            assertEquals(expected, TextDetector.detect(ByteBuffer.wrap(content)), message);
+            assertEquals(expected, TextDetector.detectText(ByteBuffer.wrap(content)), message);
+        }
+    }
+
+    @Test
+    void controlBytesMatchAPlainCount() {
+        Random random = new Random(5);
+        for (int round = 0; round < 5000; round++) {
+            byte[] content = new byte[1 + random.nextInt(300)];
+            int controlPercent = random.nextInt(25);
+            for (int i = 0; i < content.length; i++) {
+                content[i] = random.nextInt(100) < controlPercent
+                        ? (byte) random.nextInt(33)
+                        : (byte) (random.nextBoolean() ? 0x20 + random.nextInt(0x60) : random.nextInt(256));
+            }
+            if (startsWithBom(content)) {
+                continue;
+            }
+
+            boolean binary = (double) controlBytes(content) / content.length > Constants.BAD_BYTES_LIMIT;
+            assertEquals(binary, TextDetector.detect(ByteBuffer.wrap(content)) == DetectedCharset.BINARY,
+                    HexFormat.of().formatHex(content));
+        }
+    }
+
+    // A text extension does not save a file full of NUL bytes from the binary check
+    @Test
+    void nulBytesInATextFileGetTheFullDetection() {
+        byte[] content = new byte[64];
+        Arrays.fill(content, 0, 32, (byte) 'a');
+
+        assertEquals(DetectedCharset.BINARY, TextDetector.detectText(ByteBuffer.wrap(content)));
+    }
+
+    private static int controlBytes(byte[] content) {
+        int count = 0;
+        for (byte value : content) {
+            int b = value & 0xFF;
+            if (b < 9 || (b > 13 && b < 32) || b == 127) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isValidUtf8(byte[] content) {
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(content));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static boolean startsWithBom(byte[] content) {
+        return content.length >= 2 && ((content[0] & 0xFF) == 0xFE && (content[1] & 0xFF) == 0xFF
+                || (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xFE);
+    }
+
+    private static byte[] text(String before, byte[] sequence, String after) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(before.getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(sequence);
+        out.writeBytes(after.getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static ByteBuffer wrap(String hex) {
+        return ByteBuffer.wrap(HexFormat.of().parseHex(hex));
+    }
+}